@@ -0,0 +1,172 @@
+package com.example.bbcnewsreader.business;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.Serializable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Instrumented benchmark comparing the ways of handing an article to the detail screen.
+ * Each operation writes the intent extras to a Parcel, as Binder does, and reads the
+ * article back: as a Serializable extra, as the old code did; as a Parcelable extra;
+ * and as an ArticleStore handle. Run on a device or emulator:
+ * ./gradlew :app:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.example.bbcnewsreader.business.ArticlePassingBenchmark
+ * Results are logged under the ArticlePassingBenchmark tag and reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ArticlePassingBenchmark {
+
+    private static final String TAG = "ArticlePassingBenchmark";
+    private static final String KEY = "article";
+    private static final int WARMUP_OPERATIONS = 500;
+    private static final int OPERATIONS = 5000;
+
+    @Test
+    public void shortDescription() {
+        compare("shortDescription", article(200));
+    }
+
+    @Test
+    public void longDescription() {
+        compare("longDescription", article(4000));
+    }
+
+    private void compare(String name, final NewsArticle article) {
+        final SerializableArticle serializable = new SerializableArticle(article);
+        final ArticleStore store = ArticleStore.getInstance();
+
+        Bundle extras = new Bundle();
+        extras.putSerializable(KEY, serializable);
+        int serializableBytes = marshalledSize(extras);
+        long serializableNanos = measure(() -> {
+            Bundle out = new Bundle();
+            out.putSerializable(KEY, serializable);
+            Bundle in = roundTrip(out);
+            SerializableArticle read = (SerializableArticle) in.getSerializable(KEY);
+            assertEquals(article.getLink(), read.link);
+        });
+
+        extras = new Bundle();
+        extras.putParcelable(KEY, article);
+        int parcelableBytes = marshalledSize(extras);
+        long parcelableNanos = measure(() -> {
+            Bundle out = new Bundle();
+            out.putParcelable(KEY, article);
+            Bundle in = roundTrip(out);
+            NewsArticle read = in.getParcelable(KEY);
+            assertEquals(article.getLink(), read.getLink());
+        });
+
+        extras = new Bundle();
+        extras.putString(KEY, store.put(article));
+        int handleBytes = marshalledSize(extras);
+        long handleNanos = measure(() -> {
+            Bundle out = new Bundle();
+            out.putString(KEY, store.put(article));
+            Bundle in = roundTrip(out);
+            assertSame(article, store.get(in.getString(KEY)));
+        });
+
+        String line = String.format("%s: Serializable %d ns/op %d bytes, Parcelable %d ns/op"
+                        + " %d bytes, ArticleStore handle %d ns/op %d bytes", name,
+                serializableNanos, serializableBytes, parcelableNanos, parcelableBytes,
+                handleNanos, handleBytes);
+        Log.i(TAG, line);
+        Bundle status = new Bundle();
+        status.putString("stream", line + "\n");
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+
+    /**
+     * Write a bundle to a parcel and read a copy back, fully unparcelled
+     */
+    private static Bundle roundTrip(Bundle out) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            out.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            Bundle in = parcel.readBundle(ArticlePassingBenchmark.class.getClassLoader());
+            in.size();
+            return in;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static int marshalledSize(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            bundle.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * @return Average nanoseconds per operation after a warm-up
+     */
+    private static long measure(Runnable operation) {
+        for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / OPERATIONS;
+    }
+
+    private static NewsArticle article(int descriptionLength) {
+        StringBuilder description = new StringBuilder(descriptionLength);
+        while (description.length() < descriptionLength) {
+            description.append("Ministers said the plan would be set out in full next week. ");
+        }
+        description.setLength(descriptionLength);
+        NewsArticle article = new NewsArticle("Budget to include new measures on housing",
+                description.toString(), "https://www.bbc.co.uk/news/articles/c0benchmark",
+                "Mon, 05 Oct 2026 10:00:00 GMT");
+        article.setId(42);
+        article.setPubTime(1791194400000L);
+        article.setThumbnailUrl("https://ichef.bbci.co.uk/ace/standard/240/cpsprodpb/c0benchmark.jpg");
+        return article;
+    }
+
+    /**
+     * The article as the old code passed it: a Serializable with the same fields
+     */
+    private static class SerializableArticle implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long id;
+        final String title;
+        final String description;
+        final String link;
+        final String pubDate;
+        final long pubTime;
+        final String thumbnailUrl;
+
+        SerializableArticle(NewsArticle article) {
+            id = article.getId();
+            title = article.getTitle();
+            description = article.getDescription();
+            link = article.getLink();
+            pubDate = article.getPubDate();
+            pubTime = article.getPubTime();
+            thumbnailUrl = article.getThumbnailUrl();
+        }
+    }
+}
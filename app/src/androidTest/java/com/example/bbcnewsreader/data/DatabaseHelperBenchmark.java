@@ -0,0 +1,142 @@
+package com.example.bbcnewsreader.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented benchmark comparing the per-operation cost of the favourites
+ * operations when the database is reopened for every call, as DatabaseHelper
+ * used to do, with the shared WAL connection and cached statements.
+ * Runs on a device or emulator against a scratch database:
+ * ./gradlew :app:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.example.bbcnewsreader.data.DatabaseHelperBenchmark
+ * Results are logged under the DatabaseBenchmark tag and reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperBenchmark {
+
+    private static final String TAG = "DatabaseBenchmark";
+    private static final String DATABASE_NAME = "benchmark.db";
+    private static final int WARMUP_OPERATIONS = 50;
+    private static final int OPERATIONS = 500;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private File databaseFile;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        helper = new DatabaseHelper(context, DATABASE_NAME);
+        helper.getWritableDatabase();
+        databaseFile = context.getDatabasePath(DATABASE_NAME);
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(helper.insertArticle(article("seed", i)) != -1);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void articleExists() {
+        long reopening = measure(i -> {
+            SQLiteDatabase db = open();
+            Cursor cursor = db.query("favourites", new String[]{"_id"}, "link=?",
+                    new String[]{link("seed", i)}, null, null, null);
+            assertTrue(cursor.getCount() > 0);
+            cursor.close();
+            db.close();
+        });
+        long shared = measure(i -> assertTrue(helper.articleExists(link("seed", i))));
+        report("articleExists", reopening, shared);
+    }
+
+    @Test
+    public void insertAndDelete() {
+        long reopening = measure(i -> {
+            SQLiteDatabase db = open();
+            ContentValues values = new ContentValues();
+            values.put("title", "Title " + i);
+            values.put("description", "Description " + i);
+            values.put("link", link("reopen", i));
+            values.put("pub_date", "Mon, 05 Oct 2026 10:00:00 GMT");
+            long id = db.insert("favourites", null, values);
+            db.close();
+
+            db = open();
+            assertEquals(1, db.delete("favourites", "_id=?", new String[]{String.valueOf(id)}));
+            db.close();
+        });
+        long shared = measure(i -> {
+            long id = helper.insertArticle(article("shared", i));
+            assertEquals(1, helper.deleteArticle(id));
+        });
+        report("insertAndDelete", reopening, shared);
+    }
+
+    /**
+     * Open the database the way each helper call used to, via a fresh connection
+     */
+    private SQLiteDatabase open() {
+        return SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE);
+    }
+
+    /**
+     * @return Average nanoseconds per operation after a warm-up
+     */
+    private static long measure(Operation operation) {
+        for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+            operation.run(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            operation.run(i);
+        }
+        return (System.nanoTime() - start) / OPERATIONS;
+    }
+
+    private static void report(String name, long reopeningNanos, long sharedNanos) {
+        String line = String.format("%s: reopen per call %d us/op, shared connection %d us/op",
+                name, reopeningNanos / 1000, sharedNanos / 1000);
+        Log.i(TAG, line);
+        Bundle status = new Bundle();
+        status.putString("stream", line + "\n");
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+
+    private static NewsArticle article(String prefix, int i) {
+        return new NewsArticle("Title " + i, "Description " + i, link(prefix, i),
+                "Mon, 05 Oct 2026 10:00:00 GMT");
+    }
+
+    private static String link(String prefix, int i) {
+        return "https://www.bbc.co.uk/news/" + prefix + "-" + i;
+    }
+
+    private interface Operation {
+        void run(int i);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.bbcnewsreader.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bbcnewsreader.utils.PubDateParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented tests for the publication time column: its backfill when a database
+ * from before the column is upgraded, and keyset paging by time. Also checks that
+ * pages whose text could not be fetched are not selected again until their retry time.
+ * Run with: ./gradlew :app:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.example.bbcnewsreader.data.DatabaseHelperTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperTest {
+
+    private static final String DATABASE_NAME = "helper-test.db";
+    private static final long FIRST = Long.MAX_VALUE;
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void upgradeFromVersion1_backfillsPubTime() {
+        // The favourites table as the first release created it
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(
+                context.getDatabasePath(DATABASE_NAME), null);
+        db.execSQL("CREATE TABLE favourites (_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "title TEXT NOT NULL, description TEXT, link TEXT NOT NULL UNIQUE, " +
+                "pub_date TEXT)");
+        insertVersion1(db, "gmt", "Sat, 17 Oct 2026 14:05:11 GMT");
+        insertVersion1(db, "offset", "Sat, 17 Oct 2026 14:05:11 +0100");
+        insertVersion1(db, "missing", null);
+        insertVersion1(db, "invalid", "last Tuesday");
+        db.setVersion(1);
+        db.close();
+
+        helper = new DatabaseHelper(context, DATABASE_NAME);
+        List<NewsArticle> page = helper.getArticlesPageByTime(FIRST, FIRST, true, 10);
+
+        assertEquals(4, page.size());
+        assertEquals(link("gmt"), page.get(0).getLink());
+        assertEquals(PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 GMT"),
+                page.get(0).getPubTime());
+        assertEquals(link("offset"), page.get(1).getLink());
+        assertEquals(page.get(0).getPubTime() - 60L * 60 * 1000, page.get(1).getPubTime());
+        // Undated rows keep 0 and sort last, newest insert first
+        assertEquals(link("invalid"), page.get(2).getLink());
+        assertEquals(PubDateParser.UNKNOWN, page.get(2).getPubTime());
+        assertEquals(link("missing"), page.get(3).getLink());
+        assertEquals(PubDateParser.UNKNOWN, page.get(3).getPubTime());
+    }
+
+    @Test
+    public void pageByTime_boundaryInsideRowsWithTheSameTime() {
+        helper = new DatabaseHelper(context, DATABASE_NAME);
+        long time = PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 GMT");
+        List<Long> expected = new ArrayList<>();
+        // Inserted out of time order; five rows share one time, two are undated
+        long newer1 = insert("newer-1", time + 1000);
+        long tie1 = insert("tie-1", time);
+        long undated1 = insert("undated-1", PubDateParser.UNKNOWN);
+        long tie2 = insert("tie-2", time);
+        long tie3 = insert("tie-3", time);
+        long newer2 = insert("newer-2", time + 1000);
+        long tie4 = insert("tie-4", time);
+        long undated2 = insert("undated-2", PubDateParser.UNKNOWN);
+        long tie5 = insert("tie-5", time);
+        // Newest first, ties by ID descending
+        for (long id : new long[]{newer2, newer1, tie5, tie4, tie3, tie2, tie1,
+                undated2, undated1}) {
+            expected.add(id);
+        }
+
+        // Every page boundary falls inside a run of equal times at some page size
+        for (int pageSize = 1; pageSize <= expected.size() + 1; pageSize++) {
+            assertEquals("page size " + pageSize, expected, readAllPages(pageSize));
+        }
+    }
+
+    @Test
+    public void pageByTime_resumesAfterTheLastRowShown() {
+        helper = new DatabaseHelper(context, DATABASE_NAME);
+        long time = PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 GMT");
+        long a = insert("a", time);
+        long b = insert("b", time);
+        long c = insert("c", time - 1);
+
+        // A page ending on b must continue with a, its tie with a lower ID, then c
+        List<NewsArticle> next = helper.getArticlesPageByTime(time, b, true, 10);
+
+        assertEquals(2, next.size());
+        assertEquals(a, next.get(0).getId());
+        assertEquals(c, next.get(1).getId());
+        assertTrue(helper.getArticlesPageByTime(time - 1, c, true, 10).isEmpty());
+    }
+
+    @Test
+    public void failedBody_isNotSelectedAgainUntilRetry() {
+        helper = new DatabaseHelper(context, DATABASE_NAME);
+        long now = PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 GMT");
+        insert("video", now);
+        insert("story", now - 1);
+        List<String> links = new ArrayList<>();
+        links.add(link("video"));
+        links.add(link("story"));
+        assertEquals(links, helper.getFavouriteLinksWithoutBody(20, now));
+
+        // The extractor rejected the video page
+        helper.saveArticleBodyFailure(link("video"), now);
+
+        List<String> story = new ArrayList<>();
+        story.add(link("story"));
+        assertEquals(story, helper.getFavouriteLinksWithoutBody(20, now - 1));
+        assertEquals(story, helper.getLinksWithoutBody(links, now - 1));
+        assertNull(helper.getArticleBody(link("video")));
+        // Once the failure is older than the retry time the page is tried again
+        assertEquals(links, helper.getFavouriteLinksWithoutBody(20, now + 1));
+        assertEquals(links, helper.getLinksWithoutBody(links, now + 1));
+    }
+
+    @Test
+    public void failedBody_keepsTextStoredEarlier() {
+        helper = new DatabaseHelper(context, DATABASE_NAME);
+        long now = PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 GMT");
+        insert("story", now);
+        assertTrue(helper.saveArticleBody(link("story"), "Text", now));
+
+        helper.saveArticleBodyFailure(link("story"), now + 1);
+
+        assertEquals("Text", helper.getArticleBody(link("story")));
+        assertTrue(helper.getFavouriteLinksWithoutBody(20, now + 2).isEmpty());
+    }
+
+    /**
+     * Walk every page, each starting after the last row of the one before
+     * @return IDs in the order they were listed
+     */
+    private List<Long> readAllPages(int pageSize) {
+        List<Long> ids = new ArrayList<>();
+        long beforeTime = FIRST;
+        long beforeId = FIRST;
+        while (true) {
+            List<NewsArticle> page =
+                    helper.getArticlesPageByTime(beforeTime, beforeId, true, pageSize);
+            for (NewsArticle article : page) {
+                ids.add(article.getId());
+            }
+            if (page.size() < pageSize) {
+                return ids;
+            }
+            NewsArticle last = page.get(page.size() - 1);
+            beforeTime = last.getPubTime();
+            beforeId = last.getId();
+        }
+    }
+
+    private long insert(String name, long pubTime) {
+        NewsArticle article = new NewsArticle("Title " + name, "Description " + name,
+                link(name), null);
+        article.setPubTime(pubTime);
+        long id = helper.insertArticle(article);
+        assertTrue(id != -1);
+        return id;
+    }
+
+    private static void insertVersion1(SQLiteDatabase db, String name, String pubDate) {
+        ContentValues values = new ContentValues();
+        values.put("title", "Title " + name);
+        values.put("description", "Description " + name);
+        values.put("link", link(name));
+        values.put("pub_date", pubDate);
+        db.insertOrThrow("favourites", null, values);
+    }
+
+    private static String link(String name) {
+        return "https://www.bbc.co.uk/news/" + name;
+    }
+}
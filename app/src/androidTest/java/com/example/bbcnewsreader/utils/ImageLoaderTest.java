@@ -0,0 +1,282 @@
+package com.example.bbcnewsreader.utils;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented tests for ImageLoader against a local HTTP server on the device.
+ * Run with: ./gradlew :app:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.example.bbcnewsreader.utils.ImageLoaderTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageLoaderTest {
+
+    private static final int IMAGE_SIZE = 400;
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private ImageLoader loader;
+    private ImageServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        Bitmap image = Bitmap.createBitmap(IMAGE_SIZE, IMAGE_SIZE, Bitmap.Config.ARGB_8888);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        image.compress(Bitmap.CompressFormat.PNG, 100, bytes);
+        server = new ImageServer(bytes.toByteArray());
+        loader = new ImageLoader(context, new HttpClient("ImageLoaderTest"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        for (String url : server.requestedUrls()) {
+            new File(new File(context.getCacheDir(), "images"), ImageLoader.fileNameFor(url))
+                    .delete();
+        }
+    }
+
+    @Test
+    public void load_sameImageForTwoViewsDownloadsOnce() {
+        final String url = server.url("/shared.png");
+        final ImageView first = imageView(100, 100);
+        final ImageView second = imageView(100, 100);
+
+        instrumentation.runOnMainSync(() -> {
+            loader.load(url, first);
+            loader.load(url, second);
+        });
+        Bitmap firstBitmap = awaitBitmap(first);
+        Bitmap secondBitmap = awaitBitmap(second);
+
+        assertSame(firstBitmap, secondBitmap);
+        assertEquals(1, server.requestCount("/shared.png"));
+    }
+
+    @Test
+    public void load_afterMemoryIsClearedReadsDiskInsteadOfDownloading() {
+        final String url = server.url("/cached.png");
+        final ImageView view = imageView(100, 100);
+
+        instrumentation.runOnMainSync(() -> loader.load(url, view));
+        awaitBitmap(view);
+        final ImageView again = imageView(100, 100);
+        instrumentation.runOnMainSync(() -> {
+            loader.clearMemory();
+            loader.load(url, again);
+        });
+        awaitBitmap(again);
+
+        assertEquals(1, server.requestCount("/cached.png"));
+    }
+
+    @Test
+    public void cancel_whenRowIsRecycledStopsTheDownload() throws Exception {
+        final String url = server.url("/slow.png");
+        final ImageView view = imageView(100, 100);
+
+        instrumentation.runOnMainSync(() -> loader.load(url, view));
+        assertTrue(server.slowRequestStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        // Rebinding a recycled row to another article cancels its pending image first
+        instrumentation.runOnMainSync(() -> loader.cancel(view));
+        server.releaseSlowResponse.countDown();
+        SystemClock.sleep(1000);
+        instrumentation.waitForIdleSync();
+
+        final Drawable[] shown = new Drawable[1];
+        instrumentation.runOnMainSync(() -> shown[0] = view.getDrawable());
+        assertNull(shown[0]);
+        assertFalse("Cancelled download was stored", new File(
+                new File(context.getCacheDir(), "images"), ImageLoader.fileNameFor(url)).exists());
+    }
+
+    @Test
+    public void load_decodesAtLargestSampleSizeCoveringTheView() {
+        // 400px halves to 200, 100 and no further for a 100px view: sample size 4
+        assertEquals(100, awaitBitmap(loadInto(server.url("/fits.png"), 100, 100)).getWidth());
+        // 400px halves to 200 but not to 100 for a 150px view: sample size 2
+        assertEquals(200, awaitBitmap(loadInto(server.url("/fits.png"), 150, 150)).getWidth());
+        // Larger than the image: decoded at full size
+        assertEquals(IMAGE_SIZE,
+                awaitBitmap(loadInto(server.url("/fits.png"), 500, 500)).getWidth());
+    }
+
+    @Test
+    public void sampleSize_isLargestPowerOfTwoCoveringBothSides() {
+        assertEquals(1, ImageLoader.sampleSize(400, 300, 400, 300));
+        assertEquals(2, ImageLoader.sampleSize(400, 300, 200, 150));
+        assertEquals(2, ImageLoader.sampleSize(400, 300, 100, 150));
+        assertEquals(4, ImageLoader.sampleSize(400, 300, 100, 75));
+        assertEquals(1, ImageLoader.sampleSize(100, 100, 400, 300));
+    }
+
+    @Test
+    public void fileNameFor_isHexSha1OfUrl() {
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", ImageLoader.fileNameFor("abc"));
+        assertFalse(ImageLoader.fileNameFor("https://a.example/1.png")
+                .equals(ImageLoader.fileNameFor("https://a.example/2.png")));
+    }
+
+    private ImageView loadInto(final String url, int width, int height) {
+        final ImageView view = imageView(width, height);
+        instrumentation.runOnMainSync(() -> loader.load(url, view));
+        return view;
+    }
+
+    private ImageView imageView(final int width, final int height) {
+        final ImageView[] view = new ImageView[1];
+        instrumentation.runOnMainSync(() -> {
+            view[0] = new ImageView(context);
+            view[0].setLayoutParams(new ViewGroup.LayoutParams(width, height));
+        });
+        return view[0];
+    }
+
+    private Bitmap awaitBitmap(final ImageView view) {
+        final Drawable[] shown = new Drawable[1];
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MILLIS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            instrumentation.runOnMainSync(() -> shown[0] = view.getDrawable());
+            if (shown[0] != null) {
+                assertTrue(shown[0] instanceof BitmapDrawable);
+                return ((BitmapDrawable) shown[0]).getBitmap();
+            }
+            SystemClock.sleep(20);
+        }
+        throw new AssertionError("No image shown within " + TIMEOUT_MILLIS + " ms");
+    }
+
+    /**
+     * Serves the same PNG at every path and counts the requests per path.
+     * The path /slow.png sends half the image, then waits to be released.
+     */
+    private static final class ImageServer {
+        final CountDownLatch slowRequestStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSlowResponse = new CountDownLatch(1);
+        private final byte[] body;
+        private final ServerSocket socket;
+        private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+        ImageServer(byte[] body) throws IOException {
+            this.body = body;
+            socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            Thread acceptor = new Thread(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        final Socket client = socket.accept();
+                        new Thread(() -> serve(client)).start();
+                    } catch (IOException e) {
+                        // Closed
+                    }
+                }
+            }, "image-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        String url(String path) {
+            return "http://127.0.0.1:" + socket.getLocalPort() + path;
+        }
+
+        int requestCount(String path) {
+            AtomicInteger count = requests.get(path);
+            return count != null ? count.get() : 0;
+        }
+
+        List<String> requestedUrls() {
+            List<String> urls = new ArrayList<>();
+            for (String path : requests.keySet()) {
+                urls.add(url(path));
+            }
+            return urls;
+        }
+
+        void close() throws IOException {
+            releaseSlowResponse.countDown();
+            socket.close();
+        }
+
+        private void serve(Socket client) {
+            try {
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                String requestLine = in.readLine();
+                String line;
+                do {
+                    line = in.readLine();
+                } while (line != null && !line.isEmpty());
+                if (requestLine == null) {
+                    return;
+                }
+                String path = requestLine.split(" ")[1];
+                requests.putIfAbsent(path, new AtomicInteger());
+                requests.get(path).incrementAndGet();
+
+                OutputStream out = client.getOutputStream();
+                out.write(("HTTP/1.1 200 OK\r\nContent-Type: image/png\r\nContent-Length: "
+                        + body.length + "\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                if (path.equals("/slow.png")) {
+                    int half = body.length / 2;
+                    out.write(body, 0, half);
+                    out.flush();
+                    slowRequestStarted.countDown();
+                    releaseSlowResponse.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    out.write(body, half, body.length - half);
+                } else {
+                    out.write(body);
+                }
+                out.flush();
+            } catch (IOException | InterruptedException e) {
+                // The client went away, e.g. a cancelled download
+            } finally {
+                try {
+                    client.close();
+                } catch (IOException e) {
+                    // Ignored
+                }
+            }
+        }
+    }
+}
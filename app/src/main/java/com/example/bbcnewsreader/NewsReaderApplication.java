@@ -0,0 +1,213 @@
+package com.example.bbcnewsreader;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+
+import com.example.bbcnewsreader.business.ArticleBodyFetcher;
+import com.example.bbcnewsreader.business.NewsRefresher;
+import com.example.bbcnewsreader.business.NewsRepository;
+import com.example.bbcnewsreader.data.DatabaseHelper;
+import com.example.bbcnewsreader.utils.AppScheduler;
+import com.example.bbcnewsreader.utils.FeedCache;
+import com.example.bbcnewsreader.utils.HttpClient;
+import com.example.bbcnewsreader.utils.ImageLoader;
+
+/**
+ * Application holding the app-wide objects: the database, repository, HTTP client and
+ * preferences, and the caches and workers built on them. Each is created on first use,
+ * so a screen only pays for what it touches and every screen shares the same instances.
+ * Once the first screen has drawn its first frame, the database is opened and the
+ * favourite links loaded on the disk pool, ahead of the screens that need them.
+ */
+public class NewsReaderApplication extends Application {
+
+    private static final String PREFS_NAME = "BBCNewsPrefs";
+
+    // Created on first use; guarded by this
+    private SharedPreferences preferences;
+    private HttpClient httpClient;
+    private DatabaseHelper databaseHelper;
+    private NewsRepository repository;
+    private FeedCache feedCache;
+    private ImageLoader imageLoader;
+    private ArticleBodyFetcher articleBodyFetcher;
+    private NewsRefresher refresher;
+
+    /**
+     * Get the application from any of its contexts
+     * @param context Any context of this app
+     * @return The application
+     */
+    public static NewsReaderApplication from(Context context) {
+        return (NewsReaderApplication) context.getApplicationContext();
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        registerActivityLifecycleCallbacks(new WarmUpTrigger());
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            ImageLoader loader;
+            synchronized (this) {
+                loader = imageLoader;
+            }
+            // Decoded images are only needed while a screen shows them
+            if (loader != null) {
+                loader.clearMemory();
+            }
+        }
+    }
+
+    /**
+     * @return The app's preferences, holding the user's settings
+     */
+    public synchronized SharedPreferences getPreferences() {
+        if (preferences == null) {
+            preferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        }
+        return preferences;
+    }
+
+    /**
+     * @return Client for every HTTP request the app makes
+     */
+    public synchronized HttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new HttpClient("BBCNewsReader (Android " + Build.VERSION.RELEASE + ")");
+        }
+        return httpClient;
+    }
+
+    /**
+     * @return The app's database. Opening it is deferred to its first query.
+     */
+    public synchronized DatabaseHelper getDatabaseHelper() {
+        if (databaseHelper == null) {
+            databaseHelper = new DatabaseHelper(this);
+        }
+        return databaseHelper;
+    }
+
+    /**
+     * @return Repository of favourite and cached articles
+     */
+    public synchronized NewsRepository getRepository() {
+        if (repository == null) {
+            repository = new NewsRepository(getDatabaseHelper());
+        }
+        return repository;
+    }
+
+    /**
+     * @return Cache of downloaded and parsed feeds
+     */
+    public synchronized FeedCache getFeedCache() {
+        if (feedCache == null) {
+            feedCache = new FeedCache(this, getHttpClient());
+        }
+        return feedCache;
+    }
+
+    /**
+     * @return Loader of thumbnail images
+     */
+    public synchronized ImageLoader getImageLoader() {
+        if (imageLoader == null) {
+            imageLoader = new ImageLoader(this, getHttpClient());
+        }
+        return imageLoader;
+    }
+
+    /**
+     * @return Fetcher downloading article pages for offline reading
+     */
+    public synchronized ArticleBodyFetcher getArticleBodyFetcher() {
+        if (articleBodyFetcher == null) {
+            articleBodyFetcher = new ArticleBodyFetcher(getRepository(), getHttpClient());
+        }
+        return articleBodyFetcher;
+    }
+
+    /**
+     * @return Refresher fetching and caching the BBC feeds
+     */
+    public synchronized NewsRefresher getRefresher() {
+        if (refresher == null) {
+            refresher = new NewsRefresher(getRepository(), getFeedCache(),
+                    getArticleBodyFetcher(), getPreferences());
+        }
+        return refresher;
+    }
+
+    /**
+     * Do the first-use work the screens would otherwise wait for
+     */
+    private void warmUp() {
+        AppScheduler.execute(AppScheduler.disk(), () -> {
+            getPreferences();
+            // Opens, and if needed upgrades, the database and loads the favourite badges
+            getRepository().loadFavouriteLinks();
+        });
+    }
+
+    /**
+     * Starts the warm-up after the first started activity draws its first frame,
+     * so it never delays the screen appearing
+     */
+    private class WarmUpTrigger implements ActivityLifecycleCallbacks {
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+            unregisterActivityLifecycleCallbacks(this);
+            final View decorView = activity.getWindow().getDecorView();
+            decorView.getViewTreeObserver().addOnPreDrawListener(
+                    new ViewTreeObserver.OnPreDrawListener() {
+                        @Override
+                        public boolean onPreDraw() {
+                            decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                            // Posted work runs after this frame's draw pass completes
+                            decorView.post(NewsReaderApplication.this::warmUp);
+                            return true;
+                        }
+                    });
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity,
+                                                @NonNull Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+        }
+    }
+}
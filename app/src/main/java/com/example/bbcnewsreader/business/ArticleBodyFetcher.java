@@ -0,0 +1,106 @@
+package com.example.bbcnewsreader.business;
+
+import com.example.bbcnewsreader.utils.AppScheduler;
+import com.example.bbcnewsreader.utils.ArticleTextExtractor;
+import com.example.bbcnewsreader.utils.HttpClient;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Business Layer - Downloads the web pages of articles in the background and stores
+ * their main text, so the detail screen can show the full article while offline.
+ * Each page is downloaded on the prefetch pool, so a long queue of pages never delays
+ * feed refreshes on the network pool; its text is extracted on the parsing pool and
+ * stored on the disk pool. A link already being fetched is not fetched again, and a
+ * failed one is recorded so refreshes skip it for a while.
+ */
+public class ArticleBodyFetcher {
+
+    private final NewsRepository repository;
+    private final HttpClient httpClient;
+    private final Set<String> pending =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Constructor
+     * @param repository Repository the text is stored through
+     * @param httpClient Client the pages are downloaded with
+     */
+    public ArticleBodyFetcher(NewsRepository repository, HttpClient httpClient) {
+        this.repository = repository;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Fetch the text of each article, in order. Callers should pass only links whose
+     * text is not stored yet, see NewsRepository.getLinksWithoutBody.
+     * @param links Article links
+     */
+    public void fetchAll(List<String> links) {
+        for (String link : links) {
+            fetch(link);
+        }
+    }
+
+    /**
+     * Download an article's page in the background and store its main text.
+     * Failures are logged; the article keeps showing its summary only.
+     * @param link Article link
+     */
+    public void fetch(final String link) {
+        if (link == null || !pending.add(link)) {
+            return;
+        }
+        AppScheduler.execute(AppScheduler.prefetch(), () -> {
+            String html;
+            try {
+                html = ArticleTextExtractor.download(httpClient, link);
+            } catch (Exception e) {
+                failInBackground(link);
+                throw e;
+            }
+            extractInBackground(link, html);
+        });
+    }
+
+    private void extractInBackground(final String link, final String html) {
+        AppScheduler.execute(AppScheduler.parsing(), () -> {
+            String text;
+            try {
+                text = ArticleTextExtractor.extract(html);
+            } catch (RuntimeException e) {
+                failInBackground(link);
+                throw e;
+            }
+            if (text == null) {
+                // Not an article layout we recognise, e.g. a video or live page
+                failInBackground(link);
+                return;
+            }
+            storeInBackground(link, text);
+        });
+    }
+
+    private void storeInBackground(final String link, final String text) {
+        AppScheduler.execute(AppScheduler.disk(), () -> {
+            try {
+                repository.saveArticleBody(link, text);
+            } finally {
+                pending.remove(link);
+            }
+        });
+    }
+
+    private void failInBackground(final String link) {
+        AppScheduler.execute(AppScheduler.disk(), () -> {
+            try {
+                repository.saveArticleBodyFailure(link);
+            } finally {
+                pending.remove(link);
+            }
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bbcnewsreader.business;
+
+import android.util.LruCache;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+/**
+ * Business Layer - In-process store of the articles the list screens show, so another
+ * screen can be handed a short handle instead of a serialized copy of the article.
+ * Keeps the most recently put articles only, and is empty after the process is
+ * recreated, so a missing handle must be resolved through NewsRepository.getArticleByLink.
+ */
+public class ArticleStore {
+
+    private static final int MAX_ARTICLES = 500;
+
+    private static ArticleStore instance;
+
+    /** Prefix of the keys made up for articles without a link; links never start with it */
+    private static final String UNLINKED_PREFIX = "unlinked:";
+
+    // Thread-safe; keyed by link
+    private final LruCache<String, NewsArticle> articles = new LruCache<>(MAX_ARTICLES);
+
+    /**
+     * Get the shared store
+     * @return The store
+     */
+    public static synchronized ArticleStore getInstance() {
+        if (instance == null) {
+            instance = new ArticleStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Store an article until it is pushed out by newer ones
+     * @param article The article
+     * @return Handle to pass to get: the article's link, or a made-up key if it has none
+     */
+    public String put(NewsArticle article) {
+        String handle = article.getLink() != null ? article.getLink()
+                : UNLINKED_PREFIX + System.identityHashCode(article);
+        articles.put(handle, article);
+        return handle;
+    }
+
+    /**
+     * Look up a stored article
+     * @param handle Handle returned by put, or null
+     * @return The article, or null if it is no longer stored
+     */
+    public NewsArticle get(String handle) {
+        return handle != null ? articles.get(handle) : null;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.bbcnewsreader.business;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.data.SearchHit;
+import com.example.bbcnewsreader.utils.AppScheduler;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Business Layer - Runs SearchIndex queries on a background thread.
+ * A query only starts once typing has paused for the debounce window; a newer
+ * query cancels any pending or running one, and only the latest result is delivered.
+ * Optionally appends full-text matches from every stored article after the index results.
+ * The index can grow, or be swapped for a newly built one, at any time; each query
+ * reads the index that was current when it started.
+ * All public methods must be called on the main thread.
+ */
+public class DebouncedSearch {
+
+    /**
+     * Receives search results on the main thread
+     */
+    public interface Callback {
+        /**
+         * @param query The query the results belong to
+         * @param results Matching articles
+         */
+        void onResults(String query, List<NewsArticle> results);
+    }
+
+    private SearchIndex index;
+    private final long debounceMillis;
+    private final Callback callback;
+    private NewsRepository history;
+    private int historyLimit;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Runnable pendingStart;
+    private AppScheduler.Task<Void, List<NewsArticle>> running;
+    private boolean shutDown;
+
+    /**
+     * Constructor
+     * @param index Index to query
+     * @param debounceMillis Quiet period after the last keystroke before a query runs
+     * @param callback Receives the results of the latest query
+     */
+    public DebouncedSearch(SearchIndex index, long debounceMillis, Callback callback) {
+        this.index = index;
+        this.debounceMillis = debounceMillis;
+        this.callback = callback;
+    }
+
+    /**
+     * Query a different index from now on, e.g. one rebuilt with new articles.
+     * Articles may still be added to it, since SearchIndex is thread-safe.
+     * @param index The new index
+     */
+    public void setIndex(SearchIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Also search stored articles, appending matches not already found in the index
+     * @param repository Repository to search, or null to search the index only
+     * @param limit Maximum number of stored articles to append
+     */
+    public void setHistory(NewsRepository repository, int limit) {
+        this.history = repository;
+        this.historyLimit = limit;
+    }
+
+    /**
+     * Schedule a query after the debounce window, replacing any earlier one
+     * @param query Search query as typed
+     */
+    public void search(String query) {
+        schedule(query, debounceMillis);
+    }
+
+    /**
+     * Run a query straight away, e.g. after the index contents changed
+     * @param query Search query as typed
+     */
+    public void searchNow(String query) {
+        schedule(query, 0);
+    }
+
+    /**
+     * Cancel any pending or running query. Later search requests are ignored.
+     */
+    public void shutdown() {
+        cancel();
+        shutDown = true;
+    }
+
+    private void schedule(final String query, long delayMillis) {
+        if (shutDown) {
+            return;
+        }
+        cancel();
+        final SearchIndex current = index;
+        final NewsRepository repository = history;
+        final int limit = historyLimit;
+        pendingStart = () -> {
+            pendingStart = null;
+            running = AppScheduler.execute(AppScheduler.parsing(),
+                    new AppScheduler.Task<Void, List<NewsArticle>>() {
+                        @Override
+                        protected List<NewsArticle> doInBackground() {
+                            List<NewsArticle> results = current.search(query);
+                            if (repository != null && !isCancelled()) {
+                                appendHistory(results, repository.search(query, limit));
+                            }
+                            return results;
+                        }
+
+                        @Override
+                        protected void onSuccess(List<NewsArticle> results) {
+                            running = null;
+                            callback.onResults(query, results);
+                        }
+                    });
+        };
+        if (delayMillis > 0) {
+            mainHandler.postDelayed(pendingStart, delayMillis);
+        } else {
+            pendingStart.run();
+        }
+    }
+
+    private static void appendHistory(List<NewsArticle> results, List<SearchHit> hits) {
+        Set<String> links = new HashSet<>();
+        for (NewsArticle article : results) {
+            links.add(article.getLink());
+        }
+        for (SearchHit hit : hits) {
+            if (links.add(hit.getArticle().getLink())) {
+                results.add(hit.getArticle());
+            }
+        }
+    }
+
+    /**
+     * Drop the pending query and cancel the running one; a cancelled task never
+     * delivers, so only the latest query can reach the callback
+     */
+    private void cancel() {
+        if (pendingStart != null) {
+            mainHandler.removeCallbacks(pendingStart);
+            pendingStart = null;
+        }
+        if (running != null) {
+            running.cancel();
+            running = null;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.bbcnewsreader.business;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.utils.AppScheduler;
+import com.example.bbcnewsreader.utils.FeedCache;
+import com.example.bbcnewsreader.utils.FeedParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Business Layer - Loads several BBC section feeds concurrently on the network pool
+ * and merges them into a single list, deduplicated by link and ordered newest first.
+ * No thread waits for the feeds: each reports its completion, and the last one to
+ * finish starts the merge.
+ */
+public class FeedAggregator {
+
+    private static final long FEED_TIMEOUT_SECONDS = 30;
+
+    private final FeedCache feedCache;
+    private final List<String> feedUrls;
+
+    /**
+     * Constructor
+     * @param feedCache Cache used to fetch each feed
+     * @param feedUrls Feed URLs to aggregate
+     */
+    public FeedAggregator(FeedCache feedCache, List<String> feedUrls) {
+        this.feedCache = feedCache;
+        this.feedUrls = new ArrayList<>(feedUrls);
+    }
+
+    /**
+     * Fetch and parse every feed in parallel without blocking the caller, streaming
+     * articles to the listener as they are parsed. Each link is reported once, whichever
+     * feed it arrives from first. The article listener is called concurrently from
+     * network threads. A feed still loading after FEED_TIMEOUT_SECONDS is cancelled
+     * and reported as a TimeoutException; it hands no more articles to the listener.
+     * Once every feed has completed, failed or timed out, the results are merged on the
+     * parsing pool and handed to the result listener there.
+     * @param listener Listener receiving each new article, or null
+     * @param resultListener Listener receiving the merged articles and any per-feed failures
+     */
+    public void load(final FeedParser.ArticleListener listener,
+                     final ResultListener resultListener) {
+        final FeedParser.ArticleListener deduplicating;
+        if (listener == null) {
+            deduplicating = null;
+        } else {
+            final Set<String> seenLinks =
+                    Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            deduplicating = article -> {
+                if (article.getLink() == null || seenLinks.add(article.getLink())) {
+                    listener.onArticle(article);
+                }
+            };
+        }
+
+        final List<FeedTask> tasks = new ArrayList<>(feedUrls.size());
+        final AtomicInteger remaining = new AtomicInteger(feedUrls.size());
+        final Runnable onFeedDone = () -> {
+            // The last feed to finish merges; done() may run on the main thread, so hand off
+            if (remaining.decrementAndGet() == 0) {
+                AppScheduler.parsing().execute(() -> resultListener.onResult(merge(tasks)));
+            }
+        };
+        for (String feedUrl : feedUrls) {
+            tasks.add(new FeedTask(new FeedFetch(feedUrl, deduplicating), onFeedDone));
+        }
+        if (tasks.isEmpty()) {
+            AppScheduler.parsing().execute(() -> resultListener.onResult(merge(tasks)));
+            return;
+        }
+        for (FeedTask task : tasks) {
+            AppScheduler.network().execute(task);
+        }
+        // Cancelling a finished task does nothing, so the timer is left to expire
+        AppScheduler.schedule(() -> {
+            for (FeedTask task : tasks) {
+                task.cancel(true);
+            }
+        }, TimeUnit.SECONDS.toMillis(FEED_TIMEOUT_SECONDS));
+    }
+
+    /**
+     * Merge the feeds in the order they were given, keeping the first copy of each link
+     */
+    private static Result merge(List<FeedTask> tasks) {
+        Map<String, NewsArticle> articlesByLink = new LinkedHashMap<>();
+        List<NewsArticle> unlinked = new ArrayList<>();
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        for (FeedTask task : tasks) {
+            List<NewsArticle> feed;
+            try {
+                feed = task.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failures.put(task.feedUrl, cause instanceof Exception ? (Exception) cause : e);
+                continue;
+            } catch (CancellationException e) {
+                failures.put(task.feedUrl, new TimeoutException("Timed out loading " +
+                        task.feedUrl));
+                continue;
+            } catch (InterruptedException e) {
+                // Cannot happen: every task is done before the merge starts
+                Thread.currentThread().interrupt();
+                failures.put(task.feedUrl, e);
+                continue;
+            }
+            for (NewsArticle article : feed) {
+                String link = article.getLink();
+                if (link == null) {
+                    unlinked.add(article);
+                } else if (!articlesByLink.containsKey(link)) {
+                    articlesByLink.put(link, article);
+                }
+            }
+        }
+
+        List<NewsArticle> articles = new ArrayList<>(articlesByLink.values());
+        articles.addAll(unlinked);
+        sortNewestFirst(articles);
+        return new Result(articles, failures);
+    }
+
+    /**
+     * Sort articles by publication time, newest first, using the time the parser
+     * computed at ingest. Undated articles have time 0 and go to the end.
+     */
+    private static void sortNewestFirst(List<NewsArticle> articles) {
+        Collections.sort(articles, new Comparator<NewsArticle>() {
+            @Override
+            public int compare(NewsArticle a, NewsArticle b) {
+                long timeA = a.getPubTime();
+                long timeB = b.getPubTime();
+                return timeA < timeB ? 1 : (timeA == timeB ? 0 : -1);
+            }
+        });
+    }
+
+    /**
+     * Receives the outcome of an aggregated load
+     */
+    public interface ResultListener {
+        void onResult(Result result);
+    }
+
+    /**
+     * Fetch of one feed. Stops handing articles to the listener once stopped, since
+     * a cancelled fetch may still be parsing on its network thread.
+     */
+    private final class FeedFetch implements Callable<List<NewsArticle>> {
+        final String feedUrl;
+        final FeedCache.Cancellation cancellation = new FeedCache.Cancellation();
+        private final FeedParser.ArticleListener listener;
+        private boolean stopped;
+
+        FeedFetch(String feedUrl, FeedParser.ArticleListener listener) {
+            this.feedUrl = feedUrl;
+            this.listener = listener;
+        }
+
+        @Override
+        public List<NewsArticle> call() throws Exception {
+            return feedCache.fetch(feedUrl, listener != null ? this::deliver : null,
+                    cancellation);
+        }
+
+        private synchronized void deliver(NewsArticle article) {
+            if (!stopped) {
+                listener.onArticle(article);
+            }
+        }
+
+        /**
+         * Hand no more articles to the listener; waits for one being handed over
+         */
+        synchronized void stop() {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Task running one feed fetch, reporting its completion, failure or cancellation
+     */
+    private static final class FeedTask extends FutureTask<List<NewsArticle>> {
+        final String feedUrl;
+        private final FeedFetch fetch;
+        private final Runnable onDone;
+
+        FeedTask(FeedFetch fetch, Runnable onDone) {
+            super(fetch);
+            this.feedUrl = fetch.feedUrl;
+            this.fetch = fetch;
+            this.onDone = onDone;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                // The interrupt does not reach a thread blocked reading the connection
+                fetch.cancellation.cancel();
+            }
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            // Before the merge can start, so no article reaches the listener after it
+            fetch.stop();
+            onDone.run();
+        }
+    }
+
+    /**
+     * Outcome of an aggregated load
+     */
+    public static class Result {
+        private final List<NewsArticle> articles;
+        private final Map<String, Exception> failures;
+
+        Result(List<NewsArticle> articles, Map<String, Exception> failures) {
+            this.articles = articles;
+            this.failures = failures;
+        }
+
+        /**
+         * @return Merged, deduplicated articles, newest first
+         */
+        public List<NewsArticle> getArticles() {
+            return articles;
+        }
+
+        /**
+         * @return Failure for each feed that could not be loaded, keyed by feed URL
+         */
+        public Map<String, Exception> getFailures() {
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.bbcnewsreader.business;
+
+import android.content.SharedPreferences;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.utils.AppScheduler;
+import com.example.bbcnewsreader.utils.FeedCache;
+import com.example.bbcnewsreader.utils.FeedParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Business Layer - Fetches, parses and persists the BBC section feeds.
+ * Used by the search screen for on-demand refreshes, and at launch to prefetch
+ * the feeds in the background when the auto_load setting is on. Only one refresh runs
+ * at a time: a caller arriving while one is running joins it instead of starting another.
+ * After each refresh the article cache is trimmed to its retention policy in the background,
+ * and the pages of favourites, plus the newest articles when the offline_articles setting
+ * is on, are downloaded for offline reading by ArticleBodyFetcher.
+ */
+public class NewsRefresher {
+
+    /** BBC News section feeds shown on the search screen */
+    public static final List<String> BBC_FEED_URLS = Collections.unmodifiableList(Arrays.asList(
+            "https://feeds.bbci.co.uk/news/world/us_and_canada/rss.xml",
+            "https://feeds.bbci.co.uk/news/world/rss.xml",
+            "https://feeds.bbci.co.uk/news/uk/rss.xml",
+            "https://feeds.bbci.co.uk/news/business/rss.xml",
+            "https://feeds.bbci.co.uk/news/technology/rss.xml"
+    ));
+
+    private static final String PREF_AUTO_LOAD = "auto_load";
+    private static final String PREF_OFFLINE_ARTICLES = "offline_articles";
+
+    /** Most favourite pages fetched per refresh; the rest follow on later refreshes */
+    private static final int MAX_FAVOURITE_BODIES = 20;
+    /** Newest articles whose pages are fetched when offline_articles is on */
+    private static final int OFFLINE_NEWEST_ARTICLES = 20;
+
+    /** A complete refresh younger than this is served from the article cache */
+    private static final long FRESH_MILLIS = 5 * 60 * 1000;
+
+    private final NewsRepository repository;
+    private final FeedCache feedCache;
+    private final ArticleBodyFetcher bodyFetcher;
+    private final SharedPreferences prefs;
+    private final AtomicBoolean trimming = new AtomicBoolean();
+    private volatile long lastRefreshTime;
+    // The refresh in progress, until its articles are stored; guarded by runningLock
+    private final Object runningLock = new Object();
+    private SharedRefresh running;
+
+    /**
+     * Constructor
+     * @param repository Repository the articles are cached in
+     * @param feedCache Cache the feeds are fetched through
+     * @param bodyFetcher Fetcher downloading article pages for offline reading
+     * @param prefs The app's preferences, holding the auto_load and offline_articles settings
+     */
+    public NewsRefresher(NewsRepository repository, FeedCache feedCache,
+                         ArticleBodyFetcher bodyFetcher, SharedPreferences prefs) {
+        this.repository = repository;
+        this.feedCache = feedCache;
+        this.bodyFetcher = bodyFetcher;
+        this.prefs = prefs;
+    }
+
+    /**
+     * Fetch and parse every feed, then store the merged articles in the article cache.
+     * Returns at once: the feeds are fetched on the network pool, merged on the parsing
+     * pool and stored on the disk pool, and no thread waits for another.
+     * If a refresh is already running, the listener joins it: it first receives the
+     * articles parsed so far, then the rest as they arrive and the same merged result.
+     * @param listener Listener receiving each new article as it is parsed and then the
+     *                 merged result, or null
+     */
+    public void refresh(RefreshListener listener) {
+        SharedRefresh refresh;
+        boolean start = false;
+        synchronized (runningLock) {
+            if (running == null) {
+                running = new SharedRefresh();
+                start = true;
+            }
+            refresh = running;
+            if (listener != null) {
+                refresh.attach(listener);
+            }
+        }
+        if (start) {
+            new FeedAggregator(feedCache, BBC_FEED_URLS).load(refresh, refresh::finish);
+        }
+    }
+
+    /**
+     * Stop a listener receiving anything more from the running refresh, e.g. because its
+     * screen was destroyed. The refresh itself carries on.
+     * @param listener The listener passed to refresh
+     */
+    public void removeListener(RefreshListener listener) {
+        SharedRefresh refresh;
+        synchronized (runningLock) {
+            refresh = running;
+        }
+        if (refresh != null) {
+            refresh.detach(listener);
+        }
+    }
+
+    /**
+     * Store the merged articles on the disk pool, then trim the cache and queue page
+     * downloads. The refresh stays joinable until its articles are stored.
+     */
+    private void storeInBackground(final SharedRefresh refresh,
+                                   final FeedAggregator.Result result) {
+        AppScheduler.execute(AppScheduler.disk(), () -> {
+            try {
+                repository.cacheArticles(result.getArticles());
+                if (result.getFailures().isEmpty()) {
+                    lastRefreshTime = System.currentTimeMillis();
+                }
+            } finally {
+                finished(refresh);
+            }
+            trimInBackground();
+            fetchBodies(result.getArticles());
+        });
+    }
+
+    private void finished(SharedRefresh refresh) {
+        synchronized (runningLock) {
+            if (running == refresh) {
+                running = null;
+            }
+        }
+    }
+
+    /**
+     * Queue the pages not stored yet of favourites and, if enabled, the newest articles.
+     * Queries the database, so runs on the disk pool.
+     * @param articles Articles of the refresh, newest first
+     */
+    private void fetchBodies(List<NewsArticle> articles) {
+        bodyFetcher.fetchAll(repository.getFavouriteLinksWithoutBody(MAX_FAVOURITE_BODIES));
+        if (prefs.getBoolean(PREF_OFFLINE_ARTICLES, false)) {
+            List<String> links = new ArrayList<>();
+            for (NewsArticle article : articles) {
+                if (links.size() == OFFLINE_NEWEST_ARTICLES) {
+                    break;
+                }
+                if (article.getLink() != null) {
+                    links.add(article.getLink());
+                }
+            }
+            bodyFetcher.fetchAll(repository.getLinksWithoutBody(links));
+        }
+    }
+
+    /**
+     * Trim the article cache on the disk pool unless a trim is already running
+     */
+    private void trimInBackground() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        AppScheduler.execute(AppScheduler.disk(), () -> {
+            try {
+                repository.trimArticleCache();
+            } finally {
+                trimming.set(false);
+            }
+        });
+    }
+
+    /**
+     * @return true if every feed was refreshed and cached recently enough that
+     * showing the article cache needs no network request
+     */
+    public boolean isFresh() {
+        long last = lastRefreshTime;
+        return last != 0 && System.currentTimeMillis() - last < FRESH_MILLIS;
+    }
+
+    /**
+     * Start a background refresh if auto_load is enabled and the cache is not already
+     * fresh. The work runs on low-priority pool threads and outlives the caller.
+     */
+    public void prefetchIfEnabled() {
+        if (prefs.getBoolean(PREF_AUTO_LOAD, false) && !isFresh()) {
+            refresh(null);
+        }
+    }
+
+    /**
+     * Receives the progress and outcome of a refresh, on background threads.
+     * onArticle is called concurrently from network threads.
+     */
+    public interface RefreshListener extends FeedParser.ArticleListener {
+        /**
+         * Called on the parsing pool once every feed has completed, failed or timed out
+         * @param result Merged articles plus any per-feed failures
+         */
+        void onRefreshed(FeedAggregator.Result result);
+    }
+
+    /**
+     * One refresh and every listener that has joined it. Keeps the articles streamed
+     * so far, so a listener joining late sees the same articles as the first one.
+     */
+    private final class SharedRefresh implements RefreshListener {
+        // Guarded by this
+        private final List<NewsArticle> streamed = new ArrayList<>();
+        private final List<RefreshListener> listeners = new ArrayList<>();
+        private FeedAggregator.Result result;
+
+        synchronized void attach(RefreshListener listener) {
+            for (NewsArticle article : streamed) {
+                listener.onArticle(article);
+            }
+            if (result != null) {
+                listener.onRefreshed(result);
+            } else {
+                listeners.add(listener);
+            }
+        }
+
+        synchronized void detach(RefreshListener listener) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public synchronized void onArticle(NewsArticle article) {
+            streamed.add(article);
+            for (RefreshListener listener : listeners) {
+                listener.onArticle(article);
+            }
+        }
+
+        @Override
+        public void onRefreshed(FeedAggregator.Result merged) {
+            List<RefreshListener> joined;
+            synchronized (this) {
+                result = merged;
+                joined = new ArrayList<>(listeners);
+                listeners.clear();
+            }
+            for (RefreshListener listener : joined) {
+                listener.onRefreshed(merged);
+            }
+        }
+
+        /**
+         * Hand the merged result to the listeners, then store it
+         */
+        void finish(FeedAggregator.Result merged) {
+            onRefreshed(merged);
+            if (merged.getArticles().isEmpty()) {
+                finished(this);
+            } else {
+                storeInBackground(this, merged);
+            }
+        }
+    }
+}
@@ -1,38 +1,75 @@
 package com.example.bbcnewsreader.business;
 
-import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.example.bbcnewsreader.data.DatabaseHelper;
 import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.data.RetentionPolicy;
+import com.example.bbcnewsreader.data.SearchHit;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Business Layer - Repository pattern for managing news articles.
+ * Business Layer - Repository pattern for managing favourite and cached news articles.
  * Provides abstraction between presentation and data layers.
+ * Keeps the links of all favourites in memory, loaded once in the background and
+ * updated by every write through this repository, so isFavourite never touches the
+ * database or waits for a lock.
+ * Every favourites write is published to registered listeners as a Change, so
+ * screens can apply the delta instead of querying again.
  */
 public class NewsRepository {
-    private DatabaseHelper dbHelper;
+
+    /** Pass to the page methods, for both time and ID, to get the newest articles */
+    public static final long FIRST_PAGE = Long.MAX_VALUE;
+    // A page that could not be downloaded or held no article text is tried again after this
+    private static final long BODY_RETRY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final DatabaseHelper dbHelper;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<FavouritesListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Favourite links by row ID; null until first loaded. Written under favouritesLock.
+    private final Object favouritesLock = new Object();
+    private Map<Long, String> favouriteLinksById;
+    // The same links as a concurrent set, read by isFavourite without the lock
+    private volatile Set<String> favouriteLinks;
+    // Set when isFavourite was asked before the links were loaded. Checked and cleared
+    // under answeredLock after the set is assigned, so no early answer goes unnoticed.
+    private final Object answeredLock = new Object();
+    private boolean answeredBeforeLoad;
 
     /**
      * Constructor
-     * @param context Application context
+     * @param dbHelper The app's database
      */
-    public NewsRepository(Context context) {
-        dbHelper = new DatabaseHelper(context);
+    public NewsRepository(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
     }
 
     /**
-     * Save an article to favourites
+     * Save an article to favourites with a single atomic insert-or-ignore
      * @param article The article to save
      * @return true if saved successfully, false if already exists
      */
     public boolean saveFavourite(NewsArticle article) {
-        if (dbHelper.articleExists(article.getLink())) {
+        long id = dbHelper.insertArticle(article);
+        if (id == -1) {
             return false;
         }
-        long id = dbHelper.insertArticle(article);
-        return id != -1;
+        rememberFavourite(id, article.getLink());
+        publish(new Change(new long[]{id}, Change.NO_IDS));
+        return true;
     }
 
     /**
@@ -43,6 +80,42 @@ public class NewsRepository {
         return dbHelper.getAllArticles();
     }
 
+    /**
+     * Get one page of favourites as list rows, newest first. Rows carry only ID, title
+     * and date; load the full article with getFavouriteById.
+     * @param beforeId ID of the last article of the previous page, or FIRST_PAGE
+     * @param pageSize Maximum number of articles
+     * @return The page; shorter than pageSize when there are no more favourites
+     */
+    public List<NewsArticle> getFavouritesPage(long beforeId, int pageSize) {
+        return dbHelper.getArticlesPage(beforeId, pageSize);
+    }
+
+    /**
+     * Get one page of favourites as list rows ordered by publication time, newest
+     * first, with undated favourites last
+     * @param beforeTime Publication time of the last article of the previous page, or FIRST_PAGE
+     * @param beforeId ID of the last article of the previous page, or FIRST_PAGE
+     * @param pageSize Maximum number of articles
+     * @return The page; shorter than pageSize when there are no more favourites
+     */
+    public List<NewsArticle> getFavouritesPageByTime(long beforeTime, long beforeId,
+                                                     int pageSize) {
+        return dbHelper.getArticlesPageByTime(beforeTime, beforeId, true, pageSize);
+    }
+
+    /**
+     * Get the favourites published within a time range, e.g. the last 24 hours
+     * @param fromTime Earliest publication time, inclusive, in epoch millis
+     * @param toTime Latest publication time, exclusive, in epoch millis
+     * @param limit Maximum number of articles
+     * @return The favourites, newest first
+     */
+    public List<NewsArticle> getFavouritesPublishedBetween(long fromTime, long toTime,
+                                                           int limit) {
+        return dbHelper.getArticlesPublishedBetween(fromTime, toTime, true, limit);
+    }
+
     /**
      * Get a specific article by ID
      * @param id Article ID
@@ -52,21 +125,435 @@ public class NewsRepository {
         return dbHelper.getArticleById(id);
     }
 
+    /**
+     * Get a stored article by link, e.g. when an ArticleStore handle has gone
+     * @param link Article link
+     * @return The cached copy, else the favourite, or null if neither is stored
+     */
+    public NewsArticle getArticleByLink(String link) {
+        if (link == null) {
+            return null;
+        }
+        NewsArticle article = dbHelper.getArticleByLink(link, false);
+        return article != null ? article : dbHelper.getArticleByLink(link, true);
+    }
+
     /**
      * Delete a favourite article
      * @param id Article ID to delete
      * @return true if deleted successfully
      */
     public boolean deleteFavourite(long id) {
-        return dbHelper.deleteArticle(id) > 0;
+        if (dbHelper.deleteArticle(id) == 0) {
+            return false;
+        }
+        forgetFavourite(id);
+        publish(new Change(Change.NO_IDS, new long[]{id}));
+        return true;
+    }
+
+    /**
+     * Save several articles to favourites in one transaction
+     * @param articles The articles to save
+     * @return For each article, in order, true if saved or false if it already existed
+     */
+    public boolean[] saveFavourites(List<NewsArticle> articles) {
+        long[] ids = dbHelper.insertArticles(articles);
+        synchronized (favouritesLock) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != -1) {
+                    rememberFavourite(ids[i], articles.get(i).getLink());
+                }
+            }
+        }
+        boolean[] saved = succeeded(ids);
+        publish(new Change(select(ids, saved), Change.NO_IDS));
+        return saved;
+    }
+
+    /**
+     * Delete several favourite articles in one transaction
+     * @param ids Article IDs to delete
+     * @return For each ID, in order, true if it was deleted
+     */
+    public boolean[] deleteFavourites(long[] ids) {
+        int[] rowsAffected = dbHelper.deleteArticles(ids);
+        boolean[] deleted = new boolean[rowsAffected.length];
+        synchronized (favouritesLock) {
+            for (int i = 0; i < rowsAffected.length; i++) {
+                deleted[i] = rowsAffected[i] > 0;
+                if (deleted[i]) {
+                    forgetFavourite(ids[i]);
+                }
+            }
+        }
+        publish(new Change(Change.NO_IDS, select(ids, deleted)));
+        return deleted;
+    }
+
+    /**
+     * Replace all favourites with the given articles in one transaction
+     * @param articles The new favourites
+     * @return For each article, in order, true if saved or false if it was a duplicate
+     */
+    public boolean[] replaceAllFavourites(List<NewsArticle> articles) {
+        long[] ids = dbHelper.replaceAllArticles(articles);
+        synchronized (favouritesLock) {
+            if (favouriteLinksById != null) {
+                favouriteLinksById.clear();
+                favouriteLinks.clear();
+            }
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != -1) {
+                    rememberFavourite(ids[i], articles.get(i).getLink());
+                }
+            }
+        }
+        publish(Change.RESET);
+        return succeeded(ids);
+    }
+
+    /**
+     * Get specific favourites as list rows, e.g. the ones named by a Change
+     * @param ids Article IDs
+     * @return The favourites that still exist, newest first, with ID, title and date only
+     */
+    public List<NewsArticle> getFavouriteRows(long[] ids) {
+        return dbHelper.getArticleRows(ids);
+    }
+
+    private static boolean[] succeeded(long[] rowIds) {
+        boolean[] saved = new boolean[rowIds.length];
+        for (int i = 0; i < rowIds.length; i++) {
+            saved[i] = rowIds[i] != -1;
+        }
+        return saved;
+    }
+
+    /**
+     * @return The IDs whose outcome is true
+     */
+    private static long[] select(long[] ids, boolean[] outcomes) {
+        int count = 0;
+        for (boolean outcome : outcomes) {
+            count += outcome ? 1 : 0;
+        }
+        long[] selected = new long[count];
+        int next = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (outcomes[i]) {
+                selected[next++] = ids[i];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Register a listener for favourites changes. Must be removed again, e.g. in onDestroy.
+     * @param listener Listener called on the main thread after each write
+     */
+    public void addFavouritesListener(FavouritesListener listener) {
+        listeners.add(listener);
     }
 
     /**
-     * Check if an article is already in favourites
+     * Unregister a listener
+     * @param listener The listener to remove
+     */
+    public void removeFavouritesListener(FavouritesListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void publish(final Change change) {
+        if (change.isEmpty() || listeners.isEmpty()) {
+            return;
+        }
+        mainHandler.post(() -> {
+            for (FavouritesListener listener : listeners) {
+                listener.onFavouritesChanged(change);
+            }
+        });
+    }
+
+    /**
+     * Check if an article is already in favourites, from memory only, so it is safe
+     * to call while binding rows on the main thread. Until loadFavouriteLinks has
+     * finished every article reads as not a favourite; listeners then get a
+     * LINKS_LOADED change so they can rebind their badges.
      * @param link Article link
      * @return true if exists
      */
     public boolean isFavourite(String link) {
-        return dbHelper.articleExists(link);
+        Set<String> links = favouriteLinks;
+        if (links == null) {
+            // Only contended until the links are loaded
+            synchronized (answeredLock) {
+                links = favouriteLinks;
+                if (links == null) {
+                    answeredBeforeLoad = true;
+                    return false;
+                }
+            }
+        }
+        return link != null && links.contains(link);
+    }
+
+    /**
+     * Load the favourite links into memory if they are not loaded yet.
+     * Slow the first time, so must not be called on the main thread.
+     */
+    public void loadFavouriteLinks() {
+        synchronized (favouritesLock) {
+            if (favouriteLinksById != null) {
+                return;
+            }
+            // Loaded under the lock so no concurrent write can be missed
+            favouriteLinksById = dbHelper.getFavouriteLinks();
+            Set<String> links =
+                    Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            links.addAll(favouriteLinksById.values());
+            boolean answered;
+            synchronized (answeredLock) {
+                favouriteLinks = links;
+                answered = answeredBeforeLoad;
+                answeredBeforeLoad = false;
+            }
+            if (answered) {
+                // Badges bound before now all read as not a favourite; no row changed
+                publish(Change.LINKS_LOADED);
+            }
+        }
+    }
+
+    private void rememberFavourite(long id, String link) {
+        synchronized (favouritesLock) {
+            // Until loaded, the next load reads this row from the database
+            if (favouriteLinksById != null && link != null) {
+                favouriteLinksById.put(id, link);
+                favouriteLinks.add(link);
+            }
+        }
+    }
+
+    private void forgetFavourite(long id) {
+        synchronized (favouritesLock) {
+            if (favouriteLinksById != null) {
+                String link = favouriteLinksById.remove(id);
+                if (link != null) {
+                    favouriteLinks.remove(link);
+                }
+            }
+        }
+    }
+
+    /**
+     * Full-text search over every stored article, favourites and article cache alike.
+     * Each query word matches the start of a word in the title or description.
+     * @param query Search query as typed
+     * @param limit Maximum number of results
+     * @return Matches, best first, one per link; empty for a blank query
+     */
+    public List<SearchHit> search(String query, int limit) {
+        // Fold accents only if the index does, or accented words would never match
+        String normalised = SearchIndex.normalise(query, Locale.ROOT,
+                dbHelper.searchFoldsAccents());
+        if (normalised.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Lowercase words are never FTS operators; * makes each one a prefix match
+        String matchQuery = normalised.replace(" ", "* ") + "*";
+
+        Map<String, SearchHit> byLink = new LinkedHashMap<>();
+        for (SearchHit hit : dbHelper.searchArticles(matchQuery, true, limit)) {
+            byLink.put(hit.getArticle().getLink(), hit);
+        }
+        for (SearchHit hit : dbHelper.searchArticles(matchQuery, false, limit)) {
+            // A cached copy of a favourite adds nothing
+            if (!byLink.containsKey(hit.getArticle().getLink())) {
+                byLink.put(hit.getArticle().getLink(), hit);
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(byLink.values());
+        Collections.sort(hits, new Comparator<SearchHit>() {
+            @Override
+            public int compare(SearchHit a, SearchHit b) {
+                return Double.compare(b.getScore(), a.getScore());
+            }
+        });
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * Persist freshly fetched articles so they can be shown while offline
+     * @param articles Articles in display order
+     */
+    public void cacheArticles(List<NewsArticle> articles) {
+        dbHelper.cacheArticles(articles);
+    }
+
+    /**
+     * Get the articles stored by the last fetches
+     * @return List of cached articles, newest fetch first
+     */
+    public List<NewsArticle> getCachedArticles() {
+        return dbHelper.getCachedArticles();
+    }
+
+    /**
+     * Record that an article was opened, so the retention policy keeps it longer
+     * @param link Article link
+     */
+    public void markViewed(String link) {
+        dbHelper.markCachedArticleViewed(link, System.currentTimeMillis());
+    }
+
+    /**
+     * Evict cached articles beyond the default retention policy and compact the database
+     * @return Number of cached articles evicted
+     */
+    public int trimArticleCache() {
+        return dbHelper.trimArticleCache(RetentionPolicy.DEFAULT, System.currentTimeMillis());
+    }
+
+    /**
+     * Store the main text of an article's web page for offline reading
+     * @param link Article link
+     * @param text Extracted text
+     */
+    public void saveArticleBody(String link, String text) {
+        dbHelper.saveArticleBody(link, text, System.currentTimeMillis());
+    }
+
+    /**
+     * Record that an article's web page could not be downloaded or held no article text,
+     * so it is not downloaded again for a day
+     * @param link Article link
+     */
+    public void saveArticleBodyFailure(String link) {
+        dbHelper.saveArticleBodyFailure(link, System.currentTimeMillis());
+    }
+
+    /**
+     * Get the stored main text of an article's web page
+     * @param link Article link
+     * @return The text, or null if it has not been downloaded
+     */
+    public String getArticleBody(String link) {
+        return dbHelper.getArticleBody(link);
+    }
+
+    /**
+     * Get the links of favourites whose page text has not been downloaded,
+     * leaving out those that failed within the last day
+     * @param limit Maximum number of links
+     * @return The links, newest article first
+     */
+    public List<String> getFavouriteLinksWithoutBody(int limit) {
+        return dbHelper.getFavouriteLinksWithoutBody(limit,
+                System.currentTimeMillis() - BODY_RETRY_MILLIS);
+    }
+
+    /**
+     * Keep only the links whose page text has not been downloaded,
+     * leaving out those that failed within the last day
+     * @param links Article links
+     * @return The links without text, in the given order
+     */
+    public List<String> getLinksWithoutBody(List<String> links) {
+        return dbHelper.getLinksWithoutBody(links,
+                System.currentTimeMillis() - BODY_RETRY_MILLIS);
+    }
+
+    /**
+     * Get one page of cached articles as list rows ordered by publication time
+     * @param beforeTime Publication time of the last article of the previous page, or FIRST_PAGE
+     * @param beforeId ID of the last article of the previous page, or FIRST_PAGE
+     * @param pageSize Maximum number of articles
+     * @return The page, newest first with undated articles last
+     */
+    public List<NewsArticle> getCachedArticlesPageByTime(long beforeTime, long beforeId,
+                                                         int pageSize) {
+        return dbHelper.getArticlesPageByTime(beforeTime, beforeId, false, pageSize);
+    }
+
+    /**
+     * Get the cached articles published within a time range
+     * @param fromTime Earliest publication time, inclusive, in epoch millis
+     * @param toTime Latest publication time, exclusive, in epoch millis
+     * @param limit Maximum number of articles
+     * @return The cached articles, newest first
+     */
+    public List<NewsArticle> getCachedArticlesPublishedBetween(long fromTime, long toTime,
+                                                               int limit) {
+        return dbHelper.getArticlesPublishedBetween(fromTime, toTime, false, limit);
+    }
+
+    /**
+     * Receives favourites changes on the main thread
+     */
+    public interface FavouritesListener {
+        void onFavouritesChanged(Change change);
+    }
+
+    /**
+     * IDs of the favourites touched by one write
+     */
+    public static class Change {
+        static final long[] NO_IDS = new long[0];
+
+        /** Published when the whole set was replaced; listeners should reload */
+        static final Change RESET = new Change(NO_IDS, NO_IDS, true, false);
+        /** Published when the links were first loaded; only favourite badges may change */
+        static final Change LINKS_LOADED = new Change(NO_IDS, NO_IDS, false, true);
+
+        private final long[] insertedIds;
+        private final long[] deletedIds;
+        private final boolean reset;
+        private final boolean linksLoaded;
+
+        Change(long[] insertedIds, long[] deletedIds) {
+            this(insertedIds, deletedIds, false, false);
+        }
+
+        private Change(long[] insertedIds, long[] deletedIds, boolean reset,
+                       boolean linksLoaded) {
+            this.insertedIds = insertedIds;
+            this.deletedIds = deletedIds;
+            this.reset = reset;
+            this.linksLoaded = linksLoaded;
+        }
+
+        /**
+         * @return IDs of newly saved favourites
+         */
+        public long[] getInsertedIds() {
+            return insertedIds;
+        }
+
+        /**
+         * @return IDs of deleted favourites
+         */
+        public long[] getDeletedIds() {
+            return deletedIds;
+        }
+
+        /**
+         * @return true if every favourite may have changed and the IDs are not listed
+         */
+        public boolean isReset() {
+            return reset;
+        }
+
+        /**
+         * @return true if no favourite changed, but badges bound before the links were
+         * loaded may be wrong
+         */
+        public boolean isLinksLoaded() {
+            return linksLoaded;
+        }
+
+        boolean isEmpty() {
+            return !reset && !linksLoaded && insertedIds.length == 0 && deletedIds.length == 0;
+        }
     }
 }
@@ -0,0 +1,250 @@
+package com.example.bbcnewsreader.business;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Business Layer - In-memory inverted index over article titles and descriptions.
+ * Text is normalised once when an article is added (lowercased for the index locale,
+ * accents folded, punctuation removed), and every word prefix maps to the articles
+ * containing it, so a query is a few map lookups plus a sorted-list intersection.
+ * Each query word matches the start of a word in the article.
+ */
+public class SearchIndex {
+
+    /** Prefixes longer than this share the posting list of their first MAX_PREFIX_LENGTH chars */
+    private static final int MAX_PREFIX_LENGTH = 8;
+
+    private final Locale locale;
+    private final List<NewsArticle> articles = new ArrayList<>();
+    private final List<String> normalisedTexts = new ArrayList<>();
+    private final Set<String> links = new HashSet<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * Constructor using the device locale
+     */
+    public SearchIndex() {
+        this(Locale.getDefault());
+    }
+
+    /**
+     * Constructor
+     * @param locale Locale used to lowercase articles and queries
+     */
+    public SearchIndex(Locale locale) {
+        this.locale = locale;
+    }
+
+    /**
+     * Add an article. Articles whose link is already indexed are ignored.
+     * @param article The article to index
+     */
+    public synchronized void add(NewsArticle article) {
+        if (article.getLink() != null && !links.add(article.getLink())) {
+            return;
+        }
+        int id = articles.size();
+        String text = (normalise(article.getTitle(), locale) + " "
+                + normalise(article.getDescription(), locale)).trim();
+        articles.add(article);
+        // Padded with spaces so " " + word matches a word start anywhere in the text
+        normalisedTexts.add(" " + text + " ");
+
+        for (String token : text.split(" ")) {
+            int maxLength = Math.min(token.length(), MAX_PREFIX_LENGTH);
+            for (int length = 1; length <= maxLength; length++) {
+                String prefix = token.substring(0, length);
+                Postings list = postings.get(prefix);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(prefix, list);
+                }
+                list.add(id);
+            }
+        }
+    }
+
+    /**
+     * Add several articles
+     * @param newArticles Articles to index, in display order
+     */
+    public synchronized void addAll(Collection<NewsArticle> newArticles) {
+        for (NewsArticle article : newArticles) {
+            add(article);
+        }
+    }
+
+    /**
+     * Remove every article from the index
+     */
+    public synchronized void clear() {
+        articles.clear();
+        normalisedTexts.clear();
+        links.clear();
+        postings.clear();
+    }
+
+    /**
+     * @return Number of indexed articles
+     */
+    public synchronized int size() {
+        return articles.size();
+    }
+
+    /**
+     * Find articles matching every word of the query
+     * @param query Search query as typed
+     * @return Matching articles in the order they were added; all articles for a blank query
+     */
+    public synchronized List<NewsArticle> search(String query) {
+        String normalisedQuery = normalise(query, locale);
+        if (normalisedQuery.isEmpty()) {
+            return new ArrayList<>(articles);
+        }
+
+        String[] tokens = normalisedQuery.split(" ");
+        Postings[] lists = new Postings[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            lists[i] = postings.get(token.length() > MAX_PREFIX_LENGTH
+                    ? token.substring(0, MAX_PREFIX_LENGTH) : token);
+            if (lists[i] == null) {
+                return new ArrayList<>();
+            }
+        }
+
+        // Intersect starting from the rarest word so the candidate set shrinks fastest
+        Postings shortest = lists[0];
+        for (Postings list : lists) {
+            if (list.size < shortest.size) {
+                shortest = list;
+            }
+        }
+        int[] candidates = Arrays.copyOf(shortest.ids, shortest.size);
+        int count = candidates.length;
+        for (Postings list : lists) {
+            if (list != shortest) {
+                count = list.retainAll(candidates, count);
+            }
+        }
+
+        List<NewsArticle> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = candidates[i];
+            if (matchesLongTokens(normalisedTexts.get(id), tokens)) {
+                results.add(articles.get(id));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Posting lists only go MAX_PREFIX_LENGTH deep, so confirm longer query words directly
+     */
+    private static boolean matchesLongTokens(String paddedText, String[] tokens) {
+        for (String token : tokens) {
+            if (token.length() > MAX_PREFIX_LENGTH && !paddedText.contains(" " + token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Normalise text for indexing or querying: lowercase for the locale, strip accents,
+     * and reduce everything that is not a letter or digit to single spaces.
+     * @param text Text to normalise; null is treated as empty
+     * @param locale Locale for lowercasing
+     * @return Space-separated words, without leading or trailing spaces
+     */
+    public static String normalise(String text, Locale locale) {
+        return normalise(text, locale, true);
+    }
+
+    /**
+     * Normalise text as above, optionally keeping accents, e.g. to query a full-text
+     * index whose tokenizer does not fold them
+     * @param text Text to normalise; null is treated as empty
+     * @param locale Locale for lowercasing
+     * @param foldAccents true to strip accents, false to keep them on composed letters
+     * @return Space-separated words, without leading or trailing spaces
+     */
+    public static String normalise(String text, Locale locale, boolean foldAccents) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(locale),
+                foldAccents ? Normalizer.Form.NFD : Normalizer.Form.NFC);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (foldAccents && Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && builder.length() > 0) {
+                    builder.append(' ');
+                }
+                pendingSpace = false;
+                builder.append(c);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Sorted, duplicate-free list of article ids
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        /**
+         * Append an id; ids arrive in increasing order, so only the last needs checking
+         */
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * Keep only the candidates also present in this list
+         * @param candidates Sorted candidate ids, compacted in place
+         * @param count Number of valid candidates
+         * @return Number of candidates remaining
+         */
+        int retainAll(int[] candidates, int count) {
+            int kept = 0;
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                int candidate = candidates[i];
+                position = Arrays.binarySearch(ids, position, size, candidate);
+                if (position >= 0) {
+                    candidates[kept++] = candidate;
+                } else {
+                    position = -position - 1;
+                }
+            }
+            return kept;
+        }
+    }
+}
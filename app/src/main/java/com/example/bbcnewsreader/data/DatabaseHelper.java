@@ -3,20 +3,51 @@ package com.example.bbcnewsreader.data;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
+import com.example.bbcnewsreader.utils.PubDateParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Data Access Layer - Database helper for managing favourite articles.
+ * Data Access Layer - Database helper for managing favourite articles and the
+ * offline cache of recently fetched articles. Both tables have an FTS4 full-text
+ * index kept in sync by triggers, and an index on publication time for date
+ * filtering and ordering. The article cache is kept within a RetentionPolicy by
+ * evicting the least recently viewed rows, and the file is compacted incrementally.
+ * The extracted text of article pages is stored GZIP-compressed, keyed by link, for as
+ * long as the article is a favourite or cached.
  * Extends SQLiteOpenHelper to provide CRUD operations.
+ * One instance, owned by NewsReaderApplication, keeps the database open for the app's
+ * lifetime in write-ahead logging mode, so reads run concurrently with writes and from
+ * several threads.
+ * The hot statements are compiled once and reused. Writes that use them hold the write
+ * lock, taken before any transaction begins, so the lock is always acquired before the
+ * database's write connection and never while holding it.
  */
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "bbcnews.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 7;
 
     // Table and column names
     private static final String TABLE_FAVOURITES = "favourites";
@@ -25,13 +56,90 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_DESCRIPTION = "description";
     private static final String COLUMN_LINK = "link";
     private static final String COLUMN_PUB_DATE = "pub_date";
+    // Epoch millis parsed from pub_date at ingest; 0 when unknown
+    private static final String COLUMN_PUB_TIME = "pub_time";
+    // URL of the item's media:thumbnail; null when the feed gave none
+    private static final String COLUMN_THUMBNAIL_URL = "thumbnail_url";
+
+    // Offline article cache; shares the article columns above
+    private static final String TABLE_ARTICLE_CACHE = "article_cache";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_FETCHED_AT = "fetched_at";
+    // Epoch millis the article was last opened; 0 if never
+    private static final String COLUMN_LAST_VIEWED = "last_viewed";
+
+    // Main text of article pages for offline reading, keyed by article link.
+    // An empty body marks a page whose download or extraction failed at fetched_at.
+    private static final String TABLE_ARTICLE_BODY = "article_body";
+    private static final String COLUMN_BODY = "body";
+    private static final String HAS_BODY = "length(" + COLUMN_BODY + ") > 0";
+    /** Links with text, or whose last failed attempt is not older than the bound argument */
+    private static final String SQL_BODY_STORED_OR_TRIED = "SELECT " + COLUMN_LINK + " FROM " +
+            TABLE_ARTICLE_BODY + " WHERE (" + HAS_BODY + " OR " + COLUMN_FETCHED_AT + ">=?)";
+
+    /** Eviction order: never or least recently viewed first, then oldest fetch */
+    private static final String ORDER_BY_EVICTION = COLUMN_LAST_VIEWED + ", " +
+            COLUMN_FETCHED_AT;
+    private static final int EVICTION_BATCH = 100;
+
+    // PRAGMA auto_vacuum value, and the most pages returned to the file system per trim
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    private static final int VACUUM_PAGES = 256;
+
+    /** Columns needed to show an article as a list row */
+    private static final String[] LIST_COLUMNS = {
+            COLUMN_ID, COLUMN_TITLE, COLUMN_PUB_DATE, COLUMN_PUB_TIME, COLUMN_THUMBNAIL_URL
+    };
+
+    /** Newest first; ties broken by ID so keyset pages are stable */
+    private static final String ORDER_BY_PUB_TIME = COLUMN_PUB_TIME + " DESC, " +
+            COLUMN_ID + " DESC";
+
+    // Full-text indexes over title and description, named after their content table
+    private static final String FTS_SUFFIX = "_fts";
+    private static final String TOKENIZER_UNICODE61 = "unicode61";
+    private static final double TITLE_WEIGHT = 2.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    private static final String SQL_ARTICLE_EXISTS = "SELECT COUNT(*) FROM " + TABLE_FAVOURITES +
+            " WHERE " + COLUMN_LINK + "=?";
+    private static final String SQL_INSERT_ARTICLE = "INSERT OR IGNORE INTO " + TABLE_FAVOURITES +
+            " (" + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + ", " + COLUMN_LINK + ", " +
+            COLUMN_PUB_DATE + ", " + COLUMN_PUB_TIME + ", " + COLUMN_THUMBNAIL_URL +
+            ") VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_DELETE_ARTICLE = "DELETE FROM " + TABLE_FAVOURITES +
+            " WHERE " + COLUMN_ID + "=?";
+
+    // Compiled on first use; bound and executed only while holding writeLock
+    private SQLiteStatement insertArticleStatement;
+    private SQLiteStatement deleteArticleStatement;
+    /** Held by the writes through those statements and by transactions, from before they begin */
+    private final Object writeLock = new Object();
+    /** Whether the full-text indexes fold accents; null until first checked */
+    private volatile Boolean searchFoldsAccents;
 
     /**
-     * Constructor
+     * Constructor for the app's database. The file is opened on first access.
      * @param context Application context
      */
     public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Constructor
+     * @param context Application context
+     * @param name Database file name
+     */
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // Takes effect for a new database; existing ones switch on their first trim
+        db.execSQL("PRAGMA auto_vacuum=INCREMENTAL");
     }
 
     @Override
@@ -41,32 +149,197 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COLUMN_TITLE + " TEXT NOT NULL, " +
                 COLUMN_DESCRIPTION + " TEXT, " +
                 COLUMN_LINK + " TEXT NOT NULL UNIQUE, " +
-                COLUMN_PUB_DATE + " TEXT)";
+                COLUMN_PUB_DATE + " TEXT, " +
+                COLUMN_PUB_TIME + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_THUMBNAIL_URL + " TEXT)";
         db.execSQL(createTable);
+        createArticleCache(db);
+        createSearchIndex(db, TABLE_FAVOURITES);
+        createSearchIndex(db, TABLE_ARTICLE_CACHE);
+        createPubTimeIndex(db, TABLE_FAVOURITES);
+        createPubTimeIndex(db, TABLE_ARTICLE_CACHE);
+        createEvictionIndex(db);
+        createArticleBody(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FAVOURITES);
-        onCreate(db);
+        // Upgrade step by step so existing favourites are kept
+        if (oldVersion < 2) {
+            createArticleCache(db);
+        }
+        if (oldVersion < 3) {
+            createSearchIndex(db, TABLE_FAVOURITES);
+            createSearchIndex(db, TABLE_ARTICLE_CACHE);
+        }
+        if (oldVersion < 4) {
+            addPubTime(db, TABLE_FAVOURITES);
+            // Created with the column by the step above when upgrading from version 1
+            if (oldVersion >= 2) {
+                addPubTime(db, TABLE_ARTICLE_CACHE);
+            }
+            createPubTimeIndex(db, TABLE_FAVOURITES);
+            createPubTimeIndex(db, TABLE_ARTICLE_CACHE);
+        }
+        if (oldVersion < 5) {
+            // Created with the column when upgrading from version 1
+            if (oldVersion >= 2) {
+                db.execSQL("ALTER TABLE " + TABLE_ARTICLE_CACHE + " ADD COLUMN " +
+                        COLUMN_LAST_VIEWED + " INTEGER NOT NULL DEFAULT 0");
+            }
+            createEvictionIndex(db);
+            // Stop updates of other columns from re-indexing the text
+            for (String table : new String[]{TABLE_FAVOURITES, TABLE_ARTICLE_CACHE}) {
+                String fts = table + FTS_SUFFIX;
+                db.execSQL("DROP TRIGGER IF EXISTS " + fts + "_bu");
+                db.execSQL("DROP TRIGGER IF EXISTS " + fts + "_au");
+                createSearchUpdateTriggers(db, table);
+            }
+        }
+        if (oldVersion < 6) {
+            // Older rows have no thumbnail until their feed is fetched again
+            db.execSQL("ALTER TABLE " + TABLE_FAVOURITES + " ADD COLUMN " +
+                    COLUMN_THUMBNAIL_URL + " TEXT");
+            // Created with the column when upgrading from version 1
+            if (oldVersion >= 2) {
+                db.execSQL("ALTER TABLE " + TABLE_ARTICLE_CACHE + " ADD COLUMN " +
+                        COLUMN_THUMBNAIL_URL + " TEXT");
+            }
+        }
+        if (oldVersion < 7) {
+            createArticleBody(db);
+        }
+    }
+
+    private static void createArticleCache(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLE_CACHE + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_TITLE + " TEXT NOT NULL, " +
+                COLUMN_DESCRIPTION + " TEXT, " +
+                COLUMN_LINK + " TEXT NOT NULL UNIQUE, " +
+                COLUMN_PUB_DATE + " TEXT, " +
+                COLUMN_PUB_TIME + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_THUMBNAIL_URL + " TEXT, " +
+                COLUMN_POSITION + " INTEGER NOT NULL, " +
+                COLUMN_FETCHED_AT + " INTEGER NOT NULL, " +
+                COLUMN_LAST_VIEWED + " INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    private static void createArticleBody(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLE_BODY + " (" +
+                COLUMN_LINK + " TEXT PRIMARY KEY, " +
+                COLUMN_BODY + " BLOB NOT NULL, " +
+                COLUMN_FETCHED_AT + " INTEGER NOT NULL)");
+    }
+
+    private static void createEvictionIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX " + TABLE_ARTICLE_CACHE + "_" + COLUMN_LAST_VIEWED + " ON " +
+                TABLE_ARTICLE_CACHE + "(" + ORDER_BY_EVICTION + ")");
     }
 
     /**
-     * Insert a news article into favourites
+     * Add the pub_time column to an existing table and fill it in by parsing
+     * the stored pub_date of every row
+     */
+    private static void addPubTime(SQLiteDatabase db, String table) {
+        db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + COLUMN_PUB_TIME +
+                " INTEGER NOT NULL DEFAULT 0");
+        SQLiteStatement update = db.compileStatement("UPDATE " + table + " SET " +
+                COLUMN_PUB_TIME + "=? WHERE " + COLUMN_ID + "=?");
+        Cursor cursor = db.query(table, new String[]{COLUMN_ID, COLUMN_PUB_DATE},
+                COLUMN_PUB_DATE + " IS NOT NULL", null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                long time = PubDateParser.parse(cursor.getString(1));
+                if (time != PubDateParser.UNKNOWN) {
+                    update.bindLong(1, time);
+                    update.bindLong(2, cursor.getLong(0));
+                    update.executeUpdateDelete();
+                }
+            }
+        } finally {
+            cursor.close();
+            update.close();
+        }
+    }
+
+    /**
+     * Index a table by publication time. Index entries also hold the row ID, so
+     * the index serves ORDER_BY_PUB_TIME without a sort.
+     */
+    private static void createPubTimeIndex(SQLiteDatabase db, String table) {
+        db.execSQL("CREATE INDEX " + table + "_" + COLUMN_PUB_TIME + " ON " + table +
+                "(" + COLUMN_PUB_TIME + ")");
+    }
+
+    /**
+     * Create an external-content FTS4 index over a table's title and description,
+     * the triggers that keep it in sync, and index any rows already in the table
+     */
+    private static void createSearchIndex(SQLiteDatabase db, String table) {
+        String fts = table + FTS_SUFFIX;
+        String columns = "content=" + table + ", " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION;
+        try {
+            // unicode61 folds case and accents beyond ASCII
+            db.execSQL("CREATE VIRTUAL TABLE " + fts + " USING fts4(" + columns +
+                    ", tokenize=" + TOKENIZER_UNICODE61 + ")");
+        } catch (SQLException e) {
+            // Older SQLite builds only have the ASCII tokenizer
+            db.execSQL("CREATE VIRTUAL TABLE " + fts + " USING fts4(" + columns + ")");
+        }
+        db.execSQL("CREATE TRIGGER " + fts + "_bd BEFORE DELETE ON " + table +
+                searchIndexDelete(fts));
+        db.execSQL("CREATE TRIGGER " + fts + "_ai AFTER INSERT ON " + table +
+                searchIndexInsert(fts));
+        createSearchUpdateTriggers(db, table);
+        db.execSQL("INSERT INTO " + fts + "(" + fts + ") VALUES ('rebuild')");
+    }
+
+    /**
+     * Re-index a row when its title or description changes. The index reads the old
+     * text from the table, so removal must happen before it changes.
+     */
+    private static void createSearchUpdateTriggers(SQLiteDatabase db, String table) {
+        String fts = table + FTS_SUFFIX;
+        String textColumns = " OF " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + " ON " + table;
+        db.execSQL("CREATE TRIGGER " + fts + "_bu BEFORE UPDATE" + textColumns +
+                searchIndexDelete(fts));
+        db.execSQL("CREATE TRIGGER " + fts + "_au AFTER UPDATE" + textColumns +
+                searchIndexInsert(fts));
+    }
+
+    private static String searchIndexDelete(String fts) {
+        return " BEGIN DELETE FROM " + fts + " WHERE docid=old." + COLUMN_ID + "; END";
+    }
+
+    private static String searchIndexInsert(String fts) {
+        return " BEGIN INSERT INTO " + fts + "(docid, " + COLUMN_TITLE + ", " +
+                COLUMN_DESCRIPTION + ") VALUES (new." + COLUMN_ID + ", new." + COLUMN_TITLE +
+                ", new." + COLUMN_DESCRIPTION + "); END";
+    }
+
+    /**
+     * Insert a news article into favourites in one atomic step.
+     * An article whose link is already saved, or that has no title or link, is ignored.
      * @param article The article to save
-     * @return The row ID of the newly inserted row, or -1 if an error occurred
+     * @return The row ID of the newly inserted row, or -1 if nothing was inserted
      */
     public long insertArticle(NewsArticle article) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_TITLE, article.getTitle());
-        values.put(COLUMN_DESCRIPTION, article.getDescription());
-        values.put(COLUMN_LINK, article.getLink());
-        values.put(COLUMN_PUB_DATE, article.getPubDate());
-
-        long id = db.insert(TABLE_FAVOURITES, null, values);
-        db.close();
-        return id;
+        synchronized (writeLock) {
+            SQLiteStatement statement = insertArticleStatement();
+            bindStringOrNull(statement, 1, article.getTitle());
+            bindStringOrNull(statement, 2, article.getDescription());
+            bindStringOrNull(statement, 3, article.getLink());
+            bindStringOrNull(statement, 4, article.getPubDate());
+            statement.bindLong(5, article.getPubTime());
+            bindStringOrNull(statement, 6, article.getThumbnailUrl());
+            try {
+                // -1 when OR IGNORE skipped the row
+                return statement.executeInsert();
+            } finally {
+                statement.clearBindings();
+            }
+        }
     }
 
     /**
@@ -74,26 +347,115 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return List of all favourite articles
      */
     public List<NewsArticle> getAllArticles() {
-        List<NewsArticle> articles = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
 
         Cursor cursor = db.query(TABLE_FAVOURITES, null, null, null, null, null,
                 COLUMN_ID + " DESC");
+        return readArticles(cursor);
+    }
 
-        if (cursor.moveToFirst()) {
-            do {
-                NewsArticle article = new NewsArticle();
-                article.setId(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-                article.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TITLE)));
-                article.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-                article.setLink(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LINK)));
-                article.setPubDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PUB_DATE)));
-                articles.add(article);
-            } while (cursor.moveToNext());
+    /**
+     * Get one page of favourites as list rows, newest first, using keyset pagination:
+     * the page starts right after the last row of the previous one, so its cost
+     * does not grow with how far the user has scrolled.
+     * Only ID, title and date are loaded; use getArticleById for the full record.
+     * @param beforeId Only rows with a smaller ID are returned; Long.MAX_VALUE for the first page
+     * @param limit Maximum number of rows
+     * @return The page; shorter than limit when it is the last one
+     */
+    public List<NewsArticle> getArticlesPage(long beforeId, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor cursor = db.query(TABLE_FAVOURITES, LIST_COLUMNS, COLUMN_ID + "<?",
+                new String[]{String.valueOf(beforeId)}, null, null, COLUMN_ID + " DESC",
+                String.valueOf(limit));
+        return readArticles(cursor);
+    }
+
+    /**
+     * Get specific favourites as list rows, newest first
+     * @param ids The article IDs
+     * @return The favourites that still exist, with ID, title and date only
+     */
+    public List<NewsArticle> getArticleRows(long[] ids) {
+        StringBuilder idList = new StringBuilder();
+        for (long id : ids) {
+            idList.append(idList.length() == 0 ? "" : ",").append(id);
         }
-        cursor.close();
-        db.close();
-        return articles;
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor cursor = db.query(TABLE_FAVOURITES, LIST_COLUMNS,
+                COLUMN_ID + " IN (" + idList + ")", null, null, null, COLUMN_ID + " DESC");
+        return readArticles(cursor);
+    }
+
+    /**
+     * Get the articles published within a time range, newest first
+     * @param fromTime Earliest publication time, inclusive, in epoch millis
+     * @param toTime Latest publication time, exclusive, in epoch millis
+     * @param favourites true to read favourites, false to read the article cache
+     * @param limit Maximum number of articles
+     * @return The matching articles; undated articles never match
+     */
+    public List<NewsArticle> getArticlesPublishedBetween(long fromTime, long toTime,
+                                                         boolean favourites, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor cursor = db.query(favourites ? TABLE_FAVOURITES : TABLE_ARTICLE_CACHE, null,
+                COLUMN_PUB_TIME + ">=? AND " + COLUMN_PUB_TIME + "<? AND " +
+                        COLUMN_PUB_TIME + "<>0",
+                new String[]{String.valueOf(fromTime), String.valueOf(toTime)}, null, null,
+                ORDER_BY_PUB_TIME, String.valueOf(limit));
+        return readArticles(cursor);
+    }
+
+    /**
+     * Get one page of articles as list rows ordered by publication time, newest
+     * first and undated articles last, using keyset pagination on time and ID
+     * @param beforeTime Publication time of the last row of the previous page;
+     *                   Long.MAX_VALUE for the first page
+     * @param beforeId ID of the last row of the previous page; Long.MAX_VALUE for the first page
+     * @param favourites true to read favourites, false to read the article cache
+     * @param limit Maximum number of rows
+     * @return The page; shorter than limit when it is the last one
+     */
+    public List<NewsArticle> getArticlesPageByTime(long beforeTime, long beforeId,
+                                                   boolean favourites, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String time = String.valueOf(beforeTime);
+
+        // The first term is a range on the index; the second skips the rows already shown
+        Cursor cursor = db.query(favourites ? TABLE_FAVOURITES : TABLE_ARTICLE_CACHE,
+                LIST_COLUMNS, COLUMN_PUB_TIME + "<=? AND (" + COLUMN_PUB_TIME + "<? OR " +
+                        COLUMN_ID + "<?)",
+                new String[]{time, time, String.valueOf(beforeId)}, null, null,
+                ORDER_BY_PUB_TIME, String.valueOf(limit));
+        return readArticles(cursor);
+    }
+
+    /**
+     * Map every row of a cursor to an article, then close it
+     */
+    private static List<NewsArticle> readArticles(Cursor cursor) {
+        try {
+            List<NewsArticle> articles = new ArrayList<>(cursor.getCount());
+            ArticleRowMapper mapper = new ArticleRowMapper(cursor);
+            while (cursor.moveToNext()) {
+                articles.add(mapper.map(cursor));
+            }
+            return articles;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Map the cursor's current row to an article
+     * @param cursor Cursor positioned on a row of the favourites or article cache table
+     * @return The article
+     */
+    static NewsArticle articleFromCursor(Cursor cursor) {
+        return new ArticleRowMapper(cursor).map(cursor);
     }
 
     /**
@@ -108,15 +470,28 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         NewsArticle article = null;
         if (cursor.moveToFirst()) {
-            article = new NewsArticle();
-            article.setId(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-            article.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TITLE)));
-            article.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-            article.setLink(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LINK)));
-            article.setPubDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PUB_DATE)));
+            article = articleFromCursor(cursor);
+        }
+        cursor.close();
+        return article;
+    }
+
+    /**
+     * Get a single article by link
+     * @param link The article link
+     * @param favourites true to read favourites, false to read the article cache
+     * @return The article, or null if not found
+     */
+    public NewsArticle getArticleByLink(String link, boolean favourites) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(favourites ? TABLE_FAVOURITES : TABLE_ARTICLE_CACHE, null,
+                COLUMN_LINK + "=?", new String[]{link}, null, null, null);
+
+        NewsArticle article = null;
+        if (cursor.moveToFirst()) {
+            article = articleFromCursor(cursor);
         }
         cursor.close();
-        db.close();
         return article;
     }
 
@@ -126,11 +501,97 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return Number of rows affected
      */
     public int deleteArticle(long id) {
+        synchronized (writeLock) {
+            SQLiteStatement statement = deleteArticleStatement();
+            statement.bindLong(1, id);
+            return statement.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Insert several articles into favourites in a single transaction
+     * @param articles The articles to save
+     * @return Row ID for each article, in order, or -1 where it could not be inserted
+     */
+    public long[] insertArticles(List<NewsArticle> articles) {
         SQLiteDatabase db = this.getWritableDatabase();
-        int rowsAffected = db.delete(TABLE_FAVOURITES, COLUMN_ID + "=?",
-                new String[]{String.valueOf(id)});
-        db.close();
-        return rowsAffected;
+        synchronized (writeLock) {
+            db.beginTransactionNonExclusive();
+            try {
+                long[] ids = insertEach(articles);
+                db.setTransactionSuccessful();
+                return ids;
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * Delete several articles from favourites in a single transaction
+     * @param ids The article IDs to delete
+     * @return Number of rows affected for each ID, in order
+     */
+    public int[] deleteArticles(long[] ids) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        synchronized (writeLock) {
+            db.beginTransactionNonExclusive();
+            try {
+                int[] rowsAffected = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    rowsAffected[i] = deleteArticle(ids[i]);
+                }
+                db.setTransactionSuccessful();
+                return rowsAffected;
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * Replace every favourite with the given articles in a single transaction.
+     * Readers see either the old or the new set, never a mix.
+     * @param articles The new favourites
+     * @return Row ID for each article, in order, or -1 where it could not be inserted
+     */
+    public long[] replaceAllArticles(List<NewsArticle> articles) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        synchronized (writeLock) {
+            db.beginTransactionNonExclusive();
+            try {
+                db.delete(TABLE_FAVOURITES, null, null);
+                long[] ids = insertEach(articles);
+                db.setTransactionSuccessful();
+                return ids;
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    private long[] insertEach(List<NewsArticle> articles) {
+        long[] ids = new long[articles.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = insertArticle(articles.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Get the link of every favourite
+     * @return Map of article ID to link
+     */
+    public Map<Long, String> getFavouriteLinks() {
+        Map<Long, String> links = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_FAVOURITES, new String[]{COLUMN_ID, COLUMN_LINK},
+                null, null, null, null, null);
+        while (cursor.moveToNext()) {
+            links.put(cursor.getLong(0), cursor.getString(1));
+        }
+        cursor.close();
+        return links;
     }
 
     /**
@@ -139,12 +600,506 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return true if exists, false otherwise
      */
     public boolean articleExists(String link) {
+        if (link == null) {
+            return false;
+        }
+        // A read: the connection's own statement cache keeps it compiled, and no lock is needed
+        return DatabaseUtils.longForQuery(getReadableDatabase(), SQL_ARTICLE_EXISTS,
+                new String[]{link}) > 0;
+    }
+
+    /**
+     * Store fetched articles in the offline cache, updating older copies by link
+     * in place so they keep their row ID.
+     * Articles missing from this fetch are kept, behind the fresh ones.
+     * @param articles Articles in display order
+     * @return Number of articles stored
+     */
+    public int cacheArticles(List<NewsArticle> articles) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        long fetchedAt = System.currentTimeMillis();
+        int stored = 0;
+        synchronized (writeLock) {
+            db.beginTransactionNonExclusive();
+            try {
+                ContentValues values = new ContentValues();
+                for (int i = 0; i < articles.size(); i++) {
+                    NewsArticle article = articles.get(i);
+                    if (article.getTitle() == null || article.getLink() == null) {
+                        continue;
+                    }
+                    values.clear();
+                    values.put(COLUMN_TITLE, article.getTitle());
+                    values.put(COLUMN_DESCRIPTION, article.getDescription());
+                    values.put(COLUMN_LINK, article.getLink());
+                    values.put(COLUMN_PUB_DATE, article.getPubDate());
+                    values.put(COLUMN_PUB_TIME, article.getPubTime());
+                    values.put(COLUMN_THUMBNAIL_URL, article.getThumbnailUrl());
+                    values.put(COLUMN_POSITION, i);
+                    values.put(COLUMN_FETCHED_AT, fetchedAt);
+                    // Not INSERT OR REPLACE: its implicit delete would bypass the FTS triggers
+                    if (db.update(TABLE_ARTICLE_CACHE, values, COLUMN_LINK + "=?",
+                            new String[]{article.getLink()}) > 0
+                            || db.insert(TABLE_ARTICLE_CACHE, null, values) != -1) {
+                        stored++;
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Get the cached articles, latest fetch first and in the order they were displayed
+     * @return List of cached articles
+     */
+    public List<NewsArticle> getCachedArticles() {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_FAVOURITES, new String[]{COLUMN_ID},
-                COLUMN_LINK + "=?", new String[]{link}, null, null, null);
-        boolean exists = cursor.getCount() > 0;
+
+        Cursor cursor = db.query(TABLE_ARTICLE_CACHE, null, null, null, null, null,
+                COLUMN_FETCHED_AT + " DESC, " + COLUMN_POSITION + " ASC");
+        return readArticles(cursor);
+    }
+
+    /**
+     * Record that a cached article was opened, so it is evicted after unviewed ones
+     * @param link The article link
+     * @param viewedAt Time of viewing in epoch millis
+     * @return true if the article is in the cache
+     */
+    public boolean markCachedArticleViewed(String link, long viewedAt) {
+        if (link == null) {
+            return false;
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_LAST_VIEWED, viewedAt);
+        return getWritableDatabase().update(TABLE_ARTICLE_CACHE, values, COLUMN_LINK + "=?",
+                new String[]{link}) > 0;
+    }
+
+    /**
+     * Store the main text of an article page, replacing any earlier copy
+     * @param link The article link
+     * @param text The extracted text
+     * @param fetchedAt Time of download in epoch millis
+     * @return true if the text was stored
+     */
+    public boolean saveArticleBody(String link, String text, long fetchedAt) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_LINK, link);
+        values.put(COLUMN_BODY, compress(text));
+        values.put(COLUMN_FETCHED_AT, fetchedAt);
+        return getWritableDatabase().insertWithOnConflict(TABLE_ARTICLE_BODY, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE) != -1;
+    }
+
+    /**
+     * Record that an article page could not be downloaded or held no text we recognise,
+     * so it is not fetched again before the retry time. Stored text is kept.
+     * @param link The article link
+     * @param attemptedAt Time of the attempt in epoch millis
+     */
+    public void saveArticleBodyFailure(String link, long attemptedAt) {
+        getWritableDatabase().execSQL("INSERT OR REPLACE INTO " + TABLE_ARTICLE_BODY + " (" +
+                COLUMN_LINK + ", " + COLUMN_BODY + ", " + COLUMN_FETCHED_AT + ") SELECT ?, X'', ?" +
+                " WHERE NOT EXISTS (SELECT 1 FROM " + TABLE_ARTICLE_BODY + " WHERE " +
+                COLUMN_LINK + "=? AND " + HAS_BODY + ")",
+                new Object[]{link, attemptedAt, link});
+    }
+
+    /**
+     * Get the stored main text of an article page
+     * @param link The article link
+     * @return The text, or null if none is stored
+     */
+    public String getArticleBody(String link) {
+        if (link == null) {
+            return null;
+        }
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLE_BODY,
+                new String[]{COLUMN_BODY}, COLUMN_LINK + "=? AND " + HAS_BODY,
+                new String[]{link}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? decompress(cursor.getBlob(0)) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Get links of favourites whose page text is not stored yet, newest first.
+     * Links whose last attempt failed are left out until the retry time.
+     * @param limit Maximum number of links
+     * @param retryFailedBefore Epoch millis; failures from before it are tried again
+     * @return The links
+     */
+    public List<String> getFavouriteLinksWithoutBody(int limit, long retryFailedBefore) {
+        Cursor cursor = getReadableDatabase().query(TABLE_FAVOURITES, new String[]{COLUMN_LINK},
+                COLUMN_LINK + " NOT IN (" + SQL_BODY_STORED_OR_TRIED + ")",
+                new String[]{String.valueOf(retryFailedBefore)}, null, null, ORDER_BY_PUB_TIME,
+                String.valueOf(limit));
+        return readLinks(cursor);
+    }
+
+    /**
+     * Keep only the links whose page text is not stored yet. Links whose last attempt
+     * failed are left out until the retry time.
+     * @param links Article links, at most a few hundred
+     * @param retryFailedBefore Epoch millis; failures from before it are tried again
+     * @return The links without stored text, in the given order
+     */
+    public List<String> getLinksWithoutBody(List<String> links, long retryFailedBefore) {
+        if (links.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder placeholders = new StringBuilder();
+        String[] args = new String[links.size() + 1];
+        args[0] = String.valueOf(retryFailedBefore);
+        for (int i = 0; i < links.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+            args[i + 1] = links.get(i);
+        }
+        Cursor cursor = getReadableDatabase().rawQuery(SQL_BODY_STORED_OR_TRIED + " AND " +
+                COLUMN_LINK + " IN (" + placeholders + ")", args);
+        List<String> stored = readLinks(cursor);
+        List<String> missing = new ArrayList<>(links);
+        missing.removeAll(stored);
+        return missing;
+    }
+
+    private static List<String> readLinks(Cursor cursor) {
+        List<String> links = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                links.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return links;
+    }
+
+    /**
+     * Bring the article cache within a retention policy: first drop articles neither
+     * fetched nor viewed within the maximum age, then evict the least recently viewed
+     * articles while there are too many or the database is too large. Finally return
+     * up to VACUUM_PAGES free pages to the file system, so each call does bounded work.
+     * Favourites are never touched. Page text is dropped with the last copy of its article.
+     * Slow, so must not be called on the main thread.
+     * @param policy The limits to enforce
+     * @param now Current time in epoch millis
+     * @return Number of cached articles evicted
+     */
+    public int trimArticleCache(RetentionPolicy policy, long now) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String cutoff = String.valueOf(now - policy.getMaxAgeMillis());
+        int evicted = db.delete(TABLE_ARTICLE_CACHE, COLUMN_FETCHED_AT + "<? AND " +
+                COLUMN_LAST_VIEWED + "<?", new String[]{cutoff, cutoff});
+
+        long excessRows = DatabaseUtils.queryNumEntries(db, TABLE_ARTICLE_CACHE) -
+                policy.getMaxRows();
+        if (excessRows > 0) {
+            evicted += evictLeastRecentlyViewed(db, excessRows);
+        }
+        deleteOrphanBodies(db);
+        // Freed space only shows once whole pages empty, so evict in batches and re-measure
+        while (usedBytes(db) > policy.getMaxBytes()) {
+            int batch = evictLeastRecentlyViewed(db, EVICTION_BATCH);
+            if (batch == 0) {
+                break;
+            }
+            evicted += batch;
+            deleteOrphanBodies(db);
+        }
+        compact(db);
+        return evicted;
+    }
+
+    private static int evictLeastRecentlyViewed(SQLiteDatabase db, long count) {
+        return db.delete(TABLE_ARTICLE_CACHE, COLUMN_ID + " IN (SELECT " + COLUMN_ID +
+                " FROM " + TABLE_ARTICLE_CACHE + " ORDER BY " + ORDER_BY_EVICTION +
+                " LIMIT ?)", new String[]{String.valueOf(count)});
+    }
+
+    /**
+     * Delete page text whose article is neither a favourite nor cached any more
+     */
+    private static void deleteOrphanBodies(SQLiteDatabase db) {
+        db.delete(TABLE_ARTICLE_BODY, COLUMN_LINK + " NOT IN (SELECT " + COLUMN_LINK +
+                " FROM " + TABLE_FAVOURITES + ") AND " + COLUMN_LINK + " NOT IN (SELECT " +
+                COLUMN_LINK + " FROM " + TABLE_ARTICLE_CACHE + ")", null);
+    }
+
+    /**
+     * @return Bytes in pages holding data, i.e. the file size less its free pages
+     */
+    private static long usedBytes(SQLiteDatabase db) {
+        long pages = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null) -
+                DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        return pages * db.getPageSize();
+    }
+
+    private static void compact(SQLiteDatabase db) {
+        long autoVacuum = DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null);
+        if (autoVacuum != AUTO_VACUUM_INCREMENTAL) {
+            // Created before incremental vacuum was enabled: one full rebuild switches it on
+            db.execSQL("PRAGMA auto_vacuum=INCREMENTAL");
+            db.execSQL("VACUUM");
+            return;
+        }
+        // Frees one page per result row, so the cursor must be read to the end
+        Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum(" + VACUUM_PAGES + ")", null);
+        try {
+            while (cursor.moveToNext()) {
+                // Nothing to read
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Whether the full-text indexes fold accents. Both are created together, with the
+     * unicode61 tokenizer where SQLite has it; the ASCII tokenizer keeps accents, so
+     * queries against it must keep them too.
+     * @return true if "café" is indexed as "cafe"
+     */
+    public boolean searchFoldsAccents() {
+        Boolean folds = searchFoldsAccents;
+        if (folds == null) {
+            String sql = DatabaseUtils.stringForQuery(getReadableDatabase(),
+                    "SELECT sql FROM sqlite_master WHERE name=?",
+                    new String[]{TABLE_FAVOURITES + FTS_SUFFIX});
+            folds = sql.contains(TOKENIZER_UNICODE61);
+            searchFoldsAccents = folds;
+        }
+        return folds;
+    }
+
+    /**
+     * Full-text search over favourites or the article cache, best matches first
+     * @param matchQuery FTS4 MATCH expression
+     * @param favourites true to search favourites, false to search the article cache
+     * @param limit Maximum number of results
+     * @return Matching articles with relevance scores
+     */
+    public List<SearchHit> searchArticles(String matchQuery, boolean favourites, int limit) {
+        String table = favourites ? TABLE_FAVOURITES : TABLE_ARTICLE_CACHE;
+        String fts = table + FTS_SUFFIX;
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        // Rank every match from its matchinfo alone, then load only the best rows
+        final Map<Long, Double> scores = new HashMap<>();
+        Cursor cursor = db.rawQuery("SELECT docid, matchinfo(" + fts + ", 'pcnx') FROM " +
+                fts + " WHERE " + fts + " MATCH ?", new String[]{matchQuery});
+        while (cursor.moveToNext()) {
+            scores.put(cursor.getLong(0), score(cursor.getBlob(1)));
+        }
+        cursor.close();
+        if (scores.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(scores.keySet());
+        Collections.sort(ids, new Comparator<Long>() {
+            @Override
+            public int compare(Long a, Long b) {
+                return Double.compare(scores.get(b), scores.get(a));
+            }
+        });
+        if (ids.size() > limit) {
+            ids = ids.subList(0, limit);
+        }
+
+        StringBuilder idList = new StringBuilder();
+        for (Long id : ids) {
+            idList.append(idList.length() == 0 ? "" : ",").append(id);
+        }
+        Map<Long, SearchHit> hits = new HashMap<>();
+        cursor = db.query(table, new String[]{COLUMN_ID, COLUMN_TITLE, COLUMN_DESCRIPTION,
+                        COLUMN_LINK, COLUMN_PUB_DATE, COLUMN_PUB_TIME, COLUMN_THUMBNAIL_URL},
+                COLUMN_ID + " IN (" + idList + ")", null, null, null, null);
+        ArticleRowMapper mapper = new ArticleRowMapper(cursor);
+        while (cursor.moveToNext()) {
+            NewsArticle article = mapper.map(cursor);
+            hits.put(article.getId(),
+                    new SearchHit(article, scores.get(article.getId()), favourites));
+        }
         cursor.close();
-        db.close();
-        return exists;
+
+        List<SearchHit> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            SearchHit hit = hits.get(id);
+            if (hit != null) {
+                results.add(hit);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Relevance from an FTS4 matchinfo 'pcnx' blob: for every query term and column,
+     * a saturating term frequency weighted by how rare the term is, with title
+     * matches counting double
+     */
+    private static double score(byte[] matchInfo) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        double rows = buffer.getInt(8) & 0xffffffffL;
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                // x: hits in this row, hits in all rows, rows with a hit
+                int offset = 12 + 12 * (phrase * columns + column);
+                double hits = buffer.getInt(offset) & 0xffffffffL;
+                double rowsWithHit = buffer.getInt(offset + 8) & 0xffffffffL;
+                if (hits == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (rows - rowsWithHit + 0.5) / (rowsWithHit + 0.5));
+                double weight = column == 0 ? TITLE_WEIGHT : DESCRIPTION_WEIGHT;
+                score += weight * idf * hits / (hits + 1.2);
+            }
+        }
+        return score;
+    }
+
+    private synchronized SQLiteStatement insertArticleStatement() {
+        if (insertArticleStatement == null) {
+            insertArticleStatement = getWritableDatabase().compileStatement(SQL_INSERT_ARTICLE);
+        }
+        return insertArticleStatement;
+    }
+
+    private synchronized SQLiteStatement deleteArticleStatement() {
+        if (deleteArticleStatement == null) {
+            deleteArticleStatement = getWritableDatabase().compileStatement(SQL_DELETE_ARTICLE);
+        }
+        return deleteArticleStatement;
+    }
+
+    private static byte[] compress(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            OutputStream out = new GZIPOutputStream(bytes);
+            try {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return The text, or null if the blob is not valid GZIP data
+     */
+    private static String decompress(byte[] compressed) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(compressed.length * 4);
+        try {
+            InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Release the cached statements and close the database
+     */
+    @Override
+    public synchronized void close() {
+        SQLiteStatement[] statements = {insertArticleStatement, deleteArticleStatement};
+        for (SQLiteStatement statement : statements) {
+            if (statement != null) {
+                statement.close();
+            }
+        }
+        insertArticleStatement = null;
+        deleteArticleStatement = null;
+        super.close();
+    }
+
+    /**
+     * Maps cursor rows to articles, resolving column indices once per cursor.
+     * Columns missing from the cursor's projection are left unset.
+     */
+    static final class ArticleRowMapper {
+        private final int idIndex;
+        private final int titleIndex;
+        private final int descriptionIndex;
+        private final int linkIndex;
+        private final int pubDateIndex;
+        private final int pubTimeIndex;
+        private final int thumbnailUrlIndex;
+
+        /**
+         * Constructor
+         * @param cursor Cursor over the favourites or article cache table
+         */
+        ArticleRowMapper(Cursor cursor) {
+            idIndex = cursor.getColumnIndex(COLUMN_ID);
+            titleIndex = cursor.getColumnIndex(COLUMN_TITLE);
+            descriptionIndex = cursor.getColumnIndex(COLUMN_DESCRIPTION);
+            linkIndex = cursor.getColumnIndex(COLUMN_LINK);
+            pubDateIndex = cursor.getColumnIndex(COLUMN_PUB_DATE);
+            pubTimeIndex = cursor.getColumnIndex(COLUMN_PUB_TIME);
+            thumbnailUrlIndex = cursor.getColumnIndex(COLUMN_THUMBNAIL_URL);
+        }
+
+        /**
+         * Map the cursor's current row to an article
+         * @param cursor The cursor this mapper was created for
+         * @return The article
+         */
+        NewsArticle map(Cursor cursor) {
+            NewsArticle article = new NewsArticle();
+            if (idIndex >= 0) {
+                article.setId(cursor.getLong(idIndex));
+            }
+            if (titleIndex >= 0) {
+                article.setTitle(cursor.getString(titleIndex));
+            }
+            if (descriptionIndex >= 0) {
+                article.setDescription(cursor.getString(descriptionIndex));
+            }
+            if (linkIndex >= 0) {
+                article.setLink(cursor.getString(linkIndex));
+            }
+            if (pubDateIndex >= 0) {
+                article.setPubDate(cursor.getString(pubDateIndex));
+            }
+            if (pubTimeIndex >= 0) {
+                article.setPubTime(cursor.getLong(pubTimeIndex));
+            }
+            if (thumbnailUrlIndex >= 0) {
+                article.setThumbnailUrl(cursor.getString(thumbnailUrlIndex));
+            }
+            return article;
+        }
     }
 }
@@ -1,17 +1,34 @@
 package com.example.bbcnewsreader.data;
 
-import java.io.Serializable;
+import android.os.Parcel;
+import android.os.Parcelable;
 
 /**
  * Model class representing a BBC news article.
- * Implements Serializable to allow passing between activities.
+ * Implements Parcelable so a screen can keep its article in saved instance state.
+ * Between screens, pass a handle from ArticleStore instead of the article itself.
  */
-public class NewsArticle implements Serializable {
+public class NewsArticle implements Parcelable {
+
+    public static final Creator<NewsArticle> CREATOR = new Creator<NewsArticle>() {
+        @Override
+        public NewsArticle createFromParcel(Parcel in) {
+            return new NewsArticle(in);
+        }
+
+        @Override
+        public NewsArticle[] newArray(int size) {
+            return new NewsArticle[size];
+        }
+    };
+
     private long id;
     private String title;
     private String description;
     private String link;
     private String pubDate;
+    private long pubTime;
+    private String thumbnailUrl;
 
     /**
      * Default constructor
@@ -33,6 +50,36 @@ public class NewsArticle implements Serializable {
         this.pubDate = pubDate;
     }
 
+    /**
+     * Constructor reading the fields in the order writeToParcel wrote them
+     * @param in Parcel positioned at the article
+     */
+    protected NewsArticle(Parcel in) {
+        id = in.readLong();
+        title = in.readString();
+        description = in.readString();
+        link = in.readString();
+        pubDate = in.readString();
+        pubTime = in.readLong();
+        thumbnailUrl = in.readString();
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeLong(id);
+        dest.writeString(title);
+        dest.writeString(description);
+        dest.writeString(link);
+        dest.writeString(pubDate);
+        dest.writeLong(pubTime);
+        dest.writeString(thumbnailUrl);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
     // Getters and Setters
     public long getId() {
         return id;
@@ -74,6 +121,28 @@ public class NewsArticle implements Serializable {
         this.pubDate = pubDate;
     }
 
+    /**
+     * @return Publication time in epoch milliseconds, or 0 if the date is unknown
+     */
+    public long getPubTime() {
+        return pubTime;
+    }
+
+    public void setPubTime(long pubTime) {
+        this.pubTime = pubTime;
+    }
+
+    /**
+     * @return URL of the feed's thumbnail image, or null if it has none
+     */
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
     @Override
     public String toString() {
         return title;
@@ -0,0 +1,41 @@
+package com.example.bbcnewsreader.data;
+
+/**
+ * Model class holding the limits applied to the offline article cache.
+ * Favourites are never evicted.
+ */
+public class RetentionPolicy {
+
+    /** Limits used by the app */
+    public static final RetentionPolicy DEFAULT = new RetentionPolicy(2000,
+            16L * 1024 * 1024, 30L * 24 * 60 * 60 * 1000);
+
+    private final int maxRows;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+
+    /**
+     * Constructor
+     * @param maxRows Maximum number of cached articles
+     * @param maxBytes Maximum size of the database contents, favourites included, in bytes
+     * @param maxAgeMillis Cached articles neither fetched nor viewed for this long are evicted
+     */
+    public RetentionPolicy(int maxRows, long maxBytes, long maxAgeMillis) {
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    // Getters
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.bbcnewsreader.data;
+
+/**
+ * Model class for one full-text search result over stored articles.
+ */
+public class SearchHit {
+    private final NewsArticle article;
+    private final double score;
+    private final boolean favourite;
+
+    /**
+     * Constructor
+     * @param article The matching article
+     * @param score Relevance; higher is better
+     * @param favourite true if the article came from favourites, false if from the article cache
+     */
+    public SearchHit(NewsArticle article, double score, boolean favourite) {
+        this.article = article;
+        this.score = score;
+        this.favourite = favourite;
+    }
+
+    // Getters
+    public NewsArticle getArticle() {
+        return article;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public boolean isFavourite() {
+        return favourite;
+    }
+}
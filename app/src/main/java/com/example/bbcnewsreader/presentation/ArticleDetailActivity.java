@@ -6,7 +6,9 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
 import android.widget.Button;
+import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -15,21 +17,31 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.example.bbcnewsreader.NewsReaderApplication;
 import com.example.bbcnewsreader.R;
+import com.example.bbcnewsreader.business.ArticleStore;
 import com.example.bbcnewsreader.business.NewsRepository;
 import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.utils.AppScheduler;
+import com.example.bbcnewsreader.utils.ImageLoader;
 
 /**
  * Activity displaying detailed information about a news article.
- * Allows opening in browser and saving to favourites.
+ * Allows opening in browser and saving to favourites, and shows the full article text
+ * when its page was downloaded for offline reading.
  */
 public class ArticleDetailActivity extends AppCompatActivity {
 
-    private TextView tvTitle, tvDate, tvDescription, tvLink;
+    private static final String STATE_ARTICLE = "article";
+
+    private ImageView ivThumbnail;
+    private TextView tvTitle, tvDate, tvDescription, tvLink, tvBodyLabel, tvBody;
     private Button btnOpenBrowser, btnSaveFavourite;
     private NewsArticle article;
     private NewsRepository repository;
+    private ImageLoader imageLoader;
     private boolean fromFavourites;
+    private boolean hasBody;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,22 +54,36 @@ public class ArticleDetailActivity extends AppCompatActivity {
                 getString(R.string.version));
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
 
+        ivThumbnail = findViewById(R.id.iv_thumbnail);
         tvTitle = findViewById(R.id.tv_title);
         tvDate = findViewById(R.id.tv_date);
         tvDescription = findViewById(R.id.tv_description);
         tvLink = findViewById(R.id.tv_link);
+        tvBodyLabel = findViewById(R.id.tv_body_label);
+        tvBody = findViewById(R.id.tv_body);
         btnOpenBrowser = findViewById(R.id.btn_open_browser);
         btnSaveFavourite = findViewById(R.id.btn_save_favourite);
 
-        repository = new NewsRepository(this);
+        repository = NewsReaderApplication.from(this).getRepository();
+        imageLoader = NewsReaderApplication.from(this).getImageLoader();
 
-        // Get article from intent
-        article = (NewsArticle) getIntent().getSerializableExtra("article");
+        // Favourites pass their ID, other articles an ArticleStore handle
         fromFavourites = getIntent().getBooleanExtra("from_favourites", false);
-
-        if (article != null) {
-            displayArticle();
-            saveLastViewedArticle();
+        NewsArticle saved = savedInstanceState != null
+                ? savedInstanceState.<NewsArticle>getParcelable(STATE_ARTICLE) : null;
+        if (saved != null) {
+            showArticle(saved);
+        } else if (fromFavourites) {
+            loadFavourite(getIntent().getLongExtra("article_id", -1));
+        } else {
+            String handle = getIntent().getStringExtra("article_handle");
+            NewsArticle stored = ArticleStore.getInstance().get(handle);
+            if (stored != null) {
+                showArticle(stored);
+            } else {
+                // The process was recreated since the list put it in the store
+                loadByLink(handle);
+            }
         }
 
         btnOpenBrowser.setOnClickListener(v -> openInBrowser());
@@ -69,21 +95,116 @@ public class ArticleDetailActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Load the full favourite record in the background. The buttons stay disabled
+     * until it arrives.
+     * @param id Favourite article ID
+     */
+    private void loadFavourite(final long id) {
+        btnOpenBrowser.setEnabled(false);
+        btnSaveFavourite.setEnabled(false);
+        AppScheduler.execute(this, AppScheduler.disk(), () -> repository.getFavouriteById(id),
+                loaded -> {
+                    if (loaded == null) {
+                        // Deleted in the meantime
+                        Toast.makeText(this, R.string.favourite_deleted, Toast.LENGTH_SHORT).show();
+                        finish();
+                        return;
+                    }
+                    btnOpenBrowser.setEnabled(true);
+                    btnSaveFavourite.setEnabled(true);
+                    showArticle(loaded);
+                });
+    }
+
+    /**
+     * Load an article that is no longer in the ArticleStore from the database
+     * @param link The article's link, which is its handle
+     */
+    private void loadByLink(final String link) {
+        btnOpenBrowser.setEnabled(false);
+        btnSaveFavourite.setEnabled(false);
+        AppScheduler.execute(this, AppScheduler.disk(), () -> repository.getArticleByLink(link),
+                loaded -> {
+                    if (loaded == null) {
+                        Toast.makeText(this, R.string.article_unavailable,
+                                Toast.LENGTH_SHORT).show();
+                        finish();
+                        return;
+                    }
+                    btnOpenBrowser.setEnabled(true);
+                    btnSaveFavourite.setEnabled(true);
+                    showArticle(loaded);
+                });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        imageLoader.cancel(ivThumbnail);
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (article != null) {
+            outState.putParcelable(STATE_ARTICLE, article);
+        }
+    }
+
+    /**
+     * Show an article and remember it as last viewed
+     * @param loaded The article, or null if none was passed
+     */
+    private void showArticle(NewsArticle loaded) {
+        article = loaded;
+        if (article != null) {
+            displayArticle();
+            loadBody();
+            saveLastViewedArticle();
+            if (!fromFavourites) {
+                // Keeps the cached copy from being evicted before unread articles
+                final String link = article.getLink();
+                AppScheduler.execute(AppScheduler.disk(), () -> repository.markViewed(link));
+            }
+        }
+    }
+
     /**
      * Display article details in UI
      */
     private void displayArticle() {
+        String thumbnailUrl = article.getThumbnailUrl();
+        ivThumbnail.setVisibility(thumbnailUrl != null ? View.VISIBLE : View.GONE);
+        imageLoader.load(thumbnailUrl, ivThumbnail);
         tvTitle.setText(article.getTitle());
         tvDate.setText(article.getPubDate());
         tvDescription.setText(article.getDescription());
         tvLink.setText(article.getLink());
     }
 
+    /**
+     * Show the article's stored page text below the summary, if it was downloaded.
+     * Read and decompressed on the disk pool; no network is used.
+     */
+    private void loadBody() {
+        final String link = article.getLink();
+        AppScheduler.execute(this, AppScheduler.disk(), () -> repository.getArticleBody(link),
+                body -> {
+                    if (body != null) {
+                        hasBody = true;
+                        tvBody.setText(body);
+                        tvBodyLabel.setVisibility(View.VISIBLE);
+                        tvBody.setVisibility(View.VISIBLE);
+                    }
+                });
+    }
+
     /**
      * Save article title to SharedPreferences as last viewed
      */
     private void saveLastViewedArticle() {
-        SharedPreferences prefs = getSharedPreferences("BBCNewsPrefs", MODE_PRIVATE);
+        SharedPreferences prefs = NewsReaderApplication.from(this).getPreferences();
         prefs.edit().putString("last_article_title", article.getTitle()).apply();
     }
 
@@ -100,19 +221,29 @@ public class ArticleDetailActivity extends AppCompatActivity {
      */
     private void saveFavourite() {
         if (fromFavourites) {
-            // Remove from favourites
-            repository.deleteFavourite(article.getId());
+            // Remove from favourites; the delete outlives this screen
+            final long articleId = article.getId();
+            AppScheduler.execute(AppScheduler.disk(), () -> repository.deleteFavourite(articleId));
             Toast.makeText(this, R.string.favourite_deleted, Toast.LENGTH_SHORT).show();
             finish();
         } else {
             // Add to favourites
-            boolean saved = repository.saveFavourite(article);
-            if (saved) {
-                Toast.makeText(this, R.string.article_saved, Toast.LENGTH_SHORT).show();
-                btnSaveFavourite.setEnabled(false);
-            } else {
-                Toast.makeText(this, R.string.article_already_saved, Toast.LENGTH_SHORT).show();
-            }
+            btnSaveFavourite.setEnabled(false);
+            AppScheduler.execute(this, AppScheduler.disk(),
+                    () -> repository.saveFavourite(article), saved -> {
+                        if (saved) {
+                            Toast.makeText(this, R.string.article_saved, Toast.LENGTH_SHORT).show();
+                            if (!hasBody) {
+                                // Keep the full text for reading the favourite offline
+                                NewsReaderApplication.from(this).getArticleBodyFetcher()
+                                        .fetch(article.getLink());
+                            }
+                        } else {
+                            btnSaveFavourite.setEnabled(true);
+                            Toast.makeText(this, R.string.article_already_saved,
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    });
         }
     }
 
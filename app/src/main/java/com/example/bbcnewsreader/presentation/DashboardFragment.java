@@ -13,6 +13,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
+import com.example.bbcnewsreader.NewsReaderApplication;
 import com.example.bbcnewsreader.R;
 
 /**
@@ -54,8 +55,7 @@ public class DashboardFragment extends Fragment {
      * Load the last viewed article title from SharedPreferences
      */
     private void loadLastArticle() {
-        SharedPreferences prefs = requireActivity().getSharedPreferences("BBCNewsPrefs",
-                getActivity().MODE_PRIVATE);
+        SharedPreferences prefs = NewsReaderApplication.from(requireContext()).getPreferences();
         String lastArticle = prefs.getString("last_article_title",
                 getString(R.string.no_articles_yet));
         tvLastArticle.setText(lastArticle);
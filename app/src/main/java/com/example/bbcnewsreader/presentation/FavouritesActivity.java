@@ -5,33 +5,58 @@ import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.bbcnewsreader.NewsReaderApplication;
 import com.example.bbcnewsreader.R;
 import com.example.bbcnewsreader.business.NewsRepository;
 import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.utils.AppScheduler;
 import com.google.android.material.snackbar.Snackbar;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Activity displaying saved favourite articles.
- * Allows viewing and deleting favourites.
+ * Allows viewing and deleting favourites. Favourites are loaded a page at a time
+ * as the list scrolls, and kept current by applying the repository's change events
+ * rather than querying again. Each change submits a copy of the list to the adapter,
+ * which rebinds only the rows that differ. Deletions are held back while they can
+ * still be undone and written to the database together in one batch.
  */
 public class FavouritesActivity extends AppCompatActivity {
 
-    private ListView lvFavourites;
+    private static final int PAGE_SIZE = 50;
+    /** Start loading the next page when this few rows are left below the screen */
+    private static final int PREFETCH_ROWS = 10;
+
+    private RecyclerView rvFavourites;
     private TextView tvEmpty;
     private NewsAdapter adapter;
     private NewsRepository repository;
-    private List<NewsArticle> favourites;
+    private final List<NewsArticle> favourites = new ArrayList<>();
+    private final Set<Long> loadedIds = new HashSet<>();
+    private final NewsRepository.FavouritesListener favouritesListener = this::applyChange;
+    private long nextPageBeforeId = NewsRepository.FIRST_PAGE;
+    private boolean loadingPage;
+    private boolean reachedEnd;
+    /** Incremented on reload so pages requested before it are dropped */
+    private int pageGeneration;
+    /** Deleted on screen but not yet in the database; undo restores the last one */
+    private final List<PendingDelete> pendingDeletes = new ArrayList<>();
+    /** IDs kept out of reloads until their batch delete has committed */
+    private final Set<Long> hiddenIds = new HashSet<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -44,94 +69,313 @@ public class FavouritesActivity extends AppCompatActivity {
                 getString(R.string.version));
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
 
-        lvFavourites = findViewById(R.id.lv_favourites);
+        rvFavourites = findViewById(R.id.rv_favourites);
         tvEmpty = findViewById(R.id.tv_empty);
-        repository = new NewsRepository(this);
-
+        repository = NewsReaderApplication.from(this).getRepository();
+        adapter = new NewsAdapter();
+        adapter.setOnArticleClickListener(this::openArticle);
+        adapter.setOnArticleLongClickListener(this::showDeleteDialog);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rvFavourites.setLayoutManager(layoutManager);
+        rvFavourites.addItemDecoration(
+                new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        rvFavourites.setAdapter(adapter);
+        repository.addFavouritesListener(favouritesListener);
         loadFavourites();
 
-        lvFavourites.setOnItemClickListener((parent, view, position, id) -> {
-            NewsArticle article = favourites.get(position);
-            Intent intent = new Intent(FavouritesActivity.this, ArticleDetailActivity.class);
-            intent.putExtra("article", article);
-            intent.putExtra("from_favourites", true);
-            startActivity(intent);
+        rvFavourites.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Also called after each layout, so a page shorter than the screen loads the next
+                int totalItemCount = layoutManager.getItemCount();
+                if (totalItemCount > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= totalItemCount - 1 - PREFETCH_ROWS) {
+                    loadNextPage();
+                }
+            }
         });
+    }
 
-        lvFavourites.setOnItemLongClickListener((parent, view, position, id) -> {
-            showDeleteDialog(position);
-            return true;
-        });
+    /**
+     * Open a favourite on the detail screen
+     * @param article The tapped row
+     */
+    private void openArticle(NewsArticle article) {
+        // Rows are list projections; the detail screen loads the full record by ID
+        Intent intent = new Intent(FavouritesActivity.this, ArticleDetailActivity.class);
+        intent.putExtra("article_id", article.getId());
+        intent.putExtra("from_favourites", true);
+        startActivity(intent);
     }
 
     /**
-     * Load favourite articles from database
+     * Start again from the newest favourites, dropping the pages loaded so far
      */
     private void loadFavourites() {
-        favourites = repository.getAllFavourites();
+        pageGeneration++;
+        nextPageBeforeId = NewsRepository.FIRST_PAGE;
+        loadingPage = false;
+        reachedEnd = false;
+        favourites.clear();
+        loadedIds.clear();
+        adapter.submitList(new ArrayList<>(favourites));
+        loadNextPage();
+    }
 
-        if (favourites.isEmpty()) {
+    /**
+     * Load the page after the last loaded favourite in the background, unless one is
+     * already loading or every favourite has been loaded
+     */
+    private void loadNextPage() {
+        if (loadingPage || reachedEnd) {
+            return;
+        }
+        loadingPage = true;
+        final int generation = pageGeneration;
+        final long beforeId = nextPageBeforeId;
+        AppScheduler.execute(this, AppScheduler.disk(),
+                () -> repository.getFavouritesPage(beforeId, PAGE_SIZE),
+                page -> {
+                    if (generation == pageGeneration) {
+                        showPage(page);
+                    }
+                });
+    }
+
+    /**
+     * Append a loaded page of favourite articles. A page that adds no visible row, e.g.
+     * because every row on it awaits deletion, would never cause a scroll that loads the
+     * next one, so the next page is loaded straight away.
+     * @param page Favourite articles, newest first
+     */
+    private void showPage(List<NewsArticle> page) {
+        loadingPage = false;
+        reachedEnd = page.size() < PAGE_SIZE;
+        if (!page.isEmpty()) {
+            nextPageBeforeId = page.get(page.size() - 1).getId();
+        }
+        boolean added = false;
+        for (NewsArticle article : page) {
+            // A change event may already have added a row of the first page
+            if (!hiddenIds.contains(article.getId()) && loadedIds.add(article.getId())) {
+                favourites.add(article);
+                added = true;
+            }
+        }
+        showFavourites();
+        if (!added) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Apply a favourites change made anywhere in the app: deleted rows are removed
+     * straight away, and only inserted rows are loaded
+     * @param change The change published by the repository
+     */
+    private void applyChange(NewsRepository.Change change) {
+        if (change.isReset()) {
+            loadFavourites();
+            return;
+        }
+        boolean removed = false;
+        for (long id : change.getDeletedIds()) {
+            removed |= removeRow(id);
+        }
+        if (removed) {
+            showFavourites();
+        }
+
+        List<Long> toLoad = new ArrayList<>();
+        for (long id : change.getInsertedIds()) {
+            if (!loadedIds.contains(id)) {
+                toLoad.add(id);
+            }
+        }
+        if (toLoad.isEmpty()) {
+            return;
+        }
+        final long[] ids = new long[toLoad.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = toLoad.get(i);
+        }
+        final int generation = pageGeneration;
+        AppScheduler.execute(this, AppScheduler.disk(), () -> repository.getFavouriteRows(ids),
+                rows -> {
+                    if (generation == pageGeneration) {
+                        applyRows(rows);
+                    }
+                });
+    }
+
+    /**
+     * Insert new rows in ID order, replacing any a page load has listed meanwhile.
+     * New rows beyond the loaded pages are left for the page that will contain them.
+     * @param rows Changed favourites, newest first
+     */
+    private void applyRows(List<NewsArticle> rows) {
+        for (NewsArticle row : rows) {
+            long id = row.getId();
+            if (loadedIds.contains(id)) {
+                favourites.set(indexOfRow(id), row);
+            } else if (!hiddenIds.contains(id) && (reachedEnd || id > nextPageBeforeId)) {
+                int position = 0;
+                while (position < favourites.size() && favourites.get(position).getId() > id) {
+                    position++;
+                }
+                favourites.add(position, row);
+                loadedIds.add(id);
+            }
+        }
+        showFavourites();
+    }
+
+    /**
+     * Remove a deleted favourite from the list and from any pending undo
+     * @return true if a visible row was removed
+     */
+    private boolean removeRow(long id) {
+        for (int i = pendingDeletes.size() - 1; i >= 0; i--) {
+            if (pendingDeletes.get(i).article.getId() == id) {
+                pendingDeletes.remove(i);
+            }
+        }
+        if (!loadedIds.remove(id)) {
+            return false;
+        }
+        favourites.remove(indexOfRow(id));
+        return true;
+    }
+
+    private int indexOfRow(long id) {
+        for (int i = 0; i < favourites.size(); i++) {
+            if (favourites.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hand a copy of the favourites to the adapter, which diffs it in the background
+     */
+    private void showFavourites() {
+        adapter.submitList(new ArrayList<>(favourites));
+        updateEmptyState();
+    }
+
+    /**
+     * Show the empty message or the list, depending on whether there are favourites
+     */
+    private void updateEmptyState() {
+        if (favourites.isEmpty() && reachedEnd) {
             tvEmpty.setVisibility(View.VISIBLE);
-            lvFavourites.setVisibility(View.GONE);
+            rvFavourites.setVisibility(View.GONE);
         } else {
             tvEmpty.setVisibility(View.GONE);
-            lvFavourites.setVisibility(View.VISIBLE);
-            adapter = new NewsAdapter(this, favourites);
-            lvFavourites.setAdapter(adapter);
+            rvFavourites.setVisibility(View.VISIBLE);
         }
     }
 
     /**
      * Show dialog to confirm deletion
-     * @param position Position of article to delete
+     * @param article Article to delete
      */
-    private void showDeleteDialog(int position) {
+    private void showDeleteDialog(NewsArticle article) {
         new AlertDialog.Builder(this)
                 .setTitle(R.string.delete_favourite)
-                .setMessage(favourites.get(position).getTitle())
-                .setPositiveButton(R.string.ok, (dialog, which) -> deleteArticle(position))
+                .setMessage(article.getTitle())
+                .setPositiveButton(R.string.ok, (dialog, which) -> deleteArticle(article))
                 .setNegativeButton(android.R.string.cancel, null)
                 .show();
     }
 
     /**
      * Delete article with undo option via Snackbar
-     * @param position Position of article to delete
+     * @param article Article to delete
      */
-    private void deleteArticle(int position) {
-        NewsArticle article = favourites.get(position);
-        long articleId = article.getId();
-
-        favourites.remove(position);
-        adapter.notifyDataSetChanged();
-
+    private void deleteArticle(NewsArticle article) {
+        int position = indexOfRow(article.getId());
+        if (position < 0) {
+            // Already deleted elsewhere while the dialog was open
+            return;
+        }
+        final PendingDelete pending = new PendingDelete(favourites.remove(position), position);
+        pendingDeletes.add(pending);
+        loadedIds.remove(pending.article.getId());
+        hiddenIds.add(pending.article.getId());
+        showFavourites();
         if (favourites.isEmpty()) {
-            tvEmpty.setVisibility(View.VISIBLE);
-            lvFavourites.setVisibility(View.GONE);
+            // Nothing left to scroll; fetch the next page if there is one
+            loadNextPage();
         }
 
-        Snackbar.make(lvFavourites, R.string.favourite_deleted, Snackbar.LENGTH_LONG)
-                .setAction(R.string.undo, v -> {
-                    // Note: In a real app, you'd need to re-insert the article
-                    // For simplicity, we just reload
-                    loadFavourites();
-                })
+        Snackbar.make(rvFavourites, R.string.favourite_deleted, Snackbar.LENGTH_LONG)
+                .setAction(R.string.undo, v -> undoDelete(pending))
                 .addCallback(new Snackbar.Callback() {
                     @Override
                     public void onDismissed(Snackbar snackbar, int event) {
-                        if (event != DISMISS_EVENT_ACTION) {
-                            // Actually delete from database
-                            repository.deleteFavourite(articleId);
+                        // A newer delete replacing this Snackbar joins the same batch
+                        if (event != DISMISS_EVENT_ACTION && event != DISMISS_EVENT_CONSECUTIVE) {
+                            flushPendingDeletes();
                         }
                     }
                 })
                 .show();
     }
 
+    /**
+     * Put a deleted article back where it was; nothing was written to the database yet
+     * @param pending The deletion to undo
+     */
+    private void undoDelete(PendingDelete pending) {
+        if (!pendingDeletes.remove(pending)) {
+            return;
+        }
+        hiddenIds.remove(pending.article.getId());
+        loadedIds.add(pending.article.getId());
+        favourites.add(Math.min(pending.position, favourites.size()), pending.article);
+        showFavourites();
+    }
+
+    /**
+     * Delete every pending article from the database in one transaction
+     */
+    private void flushPendingDeletes() {
+        if (pendingDeletes.isEmpty()) {
+            return;
+        }
+        final long[] ids = new long[pendingDeletes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pendingDeletes.get(i).article.getId();
+        }
+        pendingDeletes.clear();
+        // Not bound to this screen: the batch must commit even if the user leaves
+        AppScheduler.execute(AppScheduler.disk(), new AppScheduler.Task<Void, boolean[]>() {
+            @Override
+            protected boolean[] doInBackground() {
+                return repository.deleteFavourites(ids);
+            }
+
+            @Override
+            protected void onSuccess(boolean[] deleted) {
+                for (long id : ids) {
+                    hiddenIds.remove(id);
+                }
+            }
+        });
+    }
+
     @Override
-    protected void onResume() {
-        super.onResume();
-        loadFavourites();
+    protected void onStop() {
+        super.onStop();
+        flushPendingDeletes();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repository.removeFavouritesListener(favouritesListener);
     }
 
     @Override
@@ -159,4 +403,17 @@ public class FavouritesActivity extends AppCompatActivity {
                 .setPositiveButton(R.string.ok, null)
                 .show();
     }
+
+    /**
+     * An article removed from the list whose database delete is still pending
+     */
+    private static class PendingDelete {
+        final NewsArticle article;
+        final int position;
+
+        PendingDelete(NewsArticle article, int position) {
+            this.article = article;
+            this.position = position;
+        }
+    }
 }
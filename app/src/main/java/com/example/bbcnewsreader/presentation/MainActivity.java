@@ -4,6 +4,8 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBarDrawerToggle;
@@ -13,12 +15,14 @@ import androidx.appcompat.widget.Toolbar;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 
+import com.example.bbcnewsreader.NewsReaderApplication;
 import com.example.bbcnewsreader.R;
 import com.google.android.material.navigation.NavigationView;
 
 /**
  * Main activity with navigation drawer.
  * Hosts the dashboard fragment and provides navigation to other activities.
+ * When auto-load is enabled, prefetches the news feeds once the screen is drawn.
  */
 public class MainActivity extends AppCompatActivity
         implements NavigationView.OnNavigationItemSelectedListener {
@@ -54,6 +58,31 @@ public class MainActivity extends AppCompatActivity
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        prefetchAfterFirstFrame();
+    }
+
+    /**
+     * Start the auto-load prefetch after the next frame has been drawn,
+     * so it never delays the screen appearing
+     */
+    private void prefetchAfterFirstFrame() {
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        // Posted work runs after this frame's draw pass completes
+                        decorView.post(() -> NewsReaderApplication.from(MainActivity.this)
+                                .getRefresher().prefetchIfEnabled());
+                        return true;
+                    }
+                });
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
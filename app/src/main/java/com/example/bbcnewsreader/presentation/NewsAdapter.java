@@ -1,48 +1,223 @@
 package com.example.bbcnewsreader.presentation;
 
-import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.bbcnewsreader.NewsReaderApplication;
 import com.example.bbcnewsreader.R;
+import com.example.bbcnewsreader.business.NewsRepository;
 import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.utils.AppScheduler;
+import com.example.bbcnewsreader.utils.ImageLoader;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
- * Custom adapter for displaying news articles in a ListView.
+ * Custom adapter for displaying news articles in a RecyclerView.
+ * Each submitted list is diffed against the previous one on the parsing pool, keyed
+ * on article link, so only rows that changed are rebound. Submit a new list
+ * for every change; a list that was already submitted must not be modified.
+ * Row text is measured in the background when a list is submitted, see RowTextCache.
+ * Thumbnails are loaded through ImageLoader and cancelled when their row is recycled.
+ * Can badge rows whose article is a favourite, using the repository's in-memory link set.
  */
-public class NewsAdapter extends ArrayAdapter<NewsArticle> {
+public class NewsAdapter extends ListAdapter<NewsArticle, NewsAdapter.ViewHolder> {
+
+    /** Payload rebinding only the favourite badge */
+    private static final Object PAYLOAD_FAVOURITE = new Object();
+
+    private static final DiffUtil.ItemCallback<NewsArticle> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<NewsArticle>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull NewsArticle oldItem,
+                                               @NonNull NewsArticle newItem) {
+                    // A list may mix favourites, cached and freshly parsed articles, and
+                    // IDs of the two tables overlap. Links are unique in both tables, and
+                    // every stored row has one, so an article without a link is new.
+                    return oldItem.getLink() != null
+                            && oldItem.getLink().equals(newItem.getLink());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull NewsArticle oldItem,
+                                                  @NonNull NewsArticle newItem) {
+                    return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                            && Objects.equals(oldItem.getPubDate(), newItem.getPubDate())
+                            && Objects.equals(oldItem.getThumbnailUrl(),
+                                    newItem.getThumbnailUrl());
+                }
+            };
+
+    /**
+     * Receives taps on rows
+     */
+    public interface OnArticleClickListener {
+        void onArticleClick(NewsArticle article);
+    }
+
+    private final NewsRepository repository;
+    private RowTextCache rowText;
+    private ImageLoader imageLoader;
+    private OnArticleClickListener clickListener;
+    private OnArticleClickListener longClickListener;
+
+    /**
+     * Constructor
+     */
+    public NewsAdapter() {
+        this(null);
+    }
 
     /**
      * Constructor
-     * @param context Application context
-     * @param articles List of articles to display
+     * @param repository Repository used to badge favourites, or null for no badges
+     */
+    public NewsAdapter(NewsRepository repository) {
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(AppScheduler.parsing())
+                .build());
+        this.repository = repository;
+    }
+
+    /**
+     * @param listener Listener called when a row is tapped
+     */
+    public void setOnArticleClickListener(OnArticleClickListener listener) {
+        clickListener = listener;
+    }
+
+    /**
+     * @param listener Listener called when a row is long-pressed
+     */
+    public void setOnArticleLongClickListener(OnArticleClickListener listener) {
+        longClickListener = listener;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        imageLoader = NewsReaderApplication.from(recyclerView.getContext()).getImageLoader();
+        if (rowText == null) {
+            // A detached row gives the text styles to measure with before any row is shown
+            View prototype = LayoutInflater.from(recyclerView.getContext()).inflate(
+                    R.layout.list_item_news, recyclerView, false);
+            rowText = new RowTextCache(prototype.findViewById(R.id.tv_item_title),
+                    prototype.findViewById(R.id.tv_item_date));
+            rowText.prefetch(getCurrentList());
+        }
+    }
+
+    @Override
+    public void submitList(List<NewsArticle> list) {
+        if (rowText != null && list != null) {
+            rowText.prefetch(list);
+        }
+        super.submitList(list);
+    }
+
+    /**
+     * Update the favourite badge of every row, e.g. after favourites changed
      */
-    public NewsAdapter(Context context, List<NewsArticle> articles) {
-        super(context, 0, articles);
+    public void refreshFavouriteBadges() {
+        if (repository != null) {
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_FAVOURITE);
+        }
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(
+                R.layout.list_item_news, parent, false);
+        final ViewHolder holder = new ViewHolder(view);
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (clickListener != null && position != RecyclerView.NO_POSITION) {
+                clickListener.onArticleClick(getItem(position));
+            }
+        });
+        view.setOnLongClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (longClickListener == null || position == RecyclerView.NO_POSITION) {
+                return false;
+            }
+            longClickListener.onArticleClick(getItem(position));
+            return true;
+        });
+        return holder;
     }
 
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         NewsArticle article = getItem(position);
+        if (rowText != null) {
+            rowText.bindTitle(holder.tvTitle, article);
+            rowText.bindDate(holder.tvDate, article);
+        } else {
+            holder.tvTitle.setText(article.getTitle());
+            holder.tvDate.setText(article.getPubDate());
+        }
+        bindThumbnail(holder, article);
+        bindFavourite(holder, article);
+    }
 
-        if (convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.list_item_news, parent, false);
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (imageLoader != null) {
+            imageLoader.cancel(holder.ivThumbnail);
         }
+        holder.ivThumbnail.setImageDrawable(null);
+    }
 
-        TextView tvTitle = convertView.findViewById(R.id.tv_item_title);
-        TextView tvDate = convertView.findViewById(R.id.tv_item_date);
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindFavourite(holder, getItem(position));
+        }
+    }
 
-        if (article != null) {
-            tvTitle.setText(article.getTitle());
-            tvDate.setText(article.getPubDate());
+    private void bindThumbnail(ViewHolder holder, NewsArticle article) {
+        String url = article.getThumbnailUrl();
+        holder.ivThumbnail.setVisibility(url != null ? View.VISIBLE : View.GONE);
+        if (imageLoader != null) {
+            imageLoader.load(url, holder.ivThumbnail);
         }
+    }
 
-        return convertView;
+    private void bindFavourite(ViewHolder holder, NewsArticle article) {
+        boolean favourite = repository != null && repository.isFavourite(article.getLink());
+        holder.tvFavourite.setVisibility(favourite ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Row views, looked up once when the row is created
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final ImageView ivThumbnail;
+        final TextView tvTitle;
+        final TextView tvDate;
+        final TextView tvFavourite;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            ivThumbnail = itemView.findViewById(R.id.iv_item_thumbnail);
+            tvTitle = itemView.findViewById(R.id.tv_item_title);
+            tvDate = itemView.findViewById(R.id.tv_item_date);
+            tvFavourite = itemView.findViewById(R.id.tv_item_favourite);
+        }
     }
 }
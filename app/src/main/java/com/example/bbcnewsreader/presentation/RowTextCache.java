@@ -0,0 +1,130 @@
+package com.example.bbcnewsreader.presentation;
+
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.utils.AppScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Title and date text of list rows, measured and laid out on the parsing pool as soon
+ * as articles are submitted, so binding a row only attaches finished text.
+ * Entries are shared by every list, keyed by article link and text style, and used only
+ * while the article's text still matches.
+ */
+final class RowTextCache {
+
+    private static final int MAX_ENTRIES = 600;
+    /** Articles measured per submitted list; enough to cover a long fling */
+    private static final int MAX_PREFETCH = MAX_ENTRIES / 2;
+
+    private static final LruCache<String, PrecomputedTextCompat> CACHE =
+            new LruCache<>(MAX_ENTRIES);
+
+    private final PrecomputedTextCompat.Params titleParams;
+    private final PrecomputedTextCompat.Params dateParams;
+    private final String titleStyle;
+    private final String dateStyle;
+
+    /**
+     * Constructor
+     * @param title Row title view whose text style the titles are measured with
+     * @param date Row date view whose text style the dates are measured with
+     */
+    RowTextCache(TextView title, TextView date) {
+        titleParams = TextViewCompat.getTextMetricsParams(title);
+        dateParams = TextViewCompat.getTextMetricsParams(date);
+        titleStyle = "t" + titleParams.hashCode() + ":";
+        dateStyle = "d" + dateParams.hashCode() + ":";
+    }
+
+    /**
+     * Measure the text of the first articles in the background, skipping any already cached
+     * @param articles Articles about to be shown; not modified
+     */
+    void prefetch(List<NewsArticle> articles) {
+        final List<NewsArticle> pending = new ArrayList<>();
+        for (int i = 0; i < articles.size() && i < MAX_PREFETCH; i++) {
+            NewsArticle article = articles.get(i);
+            if (!isCached(titleStyle, article, article.getTitle())
+                    || !isCached(dateStyle, article, article.getPubDate())) {
+                pending.add(article);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        AppScheduler.execute(AppScheduler.parsing(), () -> {
+            for (NewsArticle article : pending) {
+                compute(titleStyle, titleParams, article, article.getTitle());
+                compute(dateStyle, dateParams, article, article.getPubDate());
+            }
+        });
+    }
+
+    /**
+     * Show an article's title, using the precomputed layout when there is one
+     */
+    void bindTitle(TextView view, NewsArticle article) {
+        bind(view, titleStyle, article, article.getTitle());
+    }
+
+    /**
+     * Show an article's date, using the precomputed layout when there is one
+     */
+    void bindDate(TextView view, NewsArticle article) {
+        bind(view, dateStyle, article, article.getPubDate());
+    }
+
+    private static void bind(TextView view, String style, NewsArticle article, String text) {
+        PrecomputedTextCompat precomputed = lookup(style, article, text);
+        if (precomputed != null) {
+            try {
+                TextViewCompat.setPrecomputedText(view, precomputed);
+                return;
+            } catch (IllegalArgumentException e) {
+                // The row resolved a different style, e.g. text direction, than the prototype
+            }
+        }
+        // Not measured yet, e.g. beyond the prefetched rows
+        view.setText(text);
+    }
+
+    private static void compute(String style, PrecomputedTextCompat.Params params,
+                                NewsArticle article, String text) {
+        if (text != null && lookup(style, article, text) == null) {
+            CACHE.put(key(style, article), PrecomputedTextCompat.create(text, params));
+        }
+    }
+
+    /**
+     * @return true if the text needs no measuring: it is cached, or there is none
+     */
+    private static boolean isCached(String style, NewsArticle article, String text) {
+        return text == null || lookup(style, article, text) != null;
+    }
+
+    /**
+     * @return The cached layout of the text, or null if none matches it
+     */
+    private static PrecomputedTextCompat lookup(String style, NewsArticle article, String text) {
+        if (text == null) {
+            return null;
+        }
+        PrecomputedTextCompat precomputed = CACHE.get(key(style, article));
+        return precomputed != null && TextUtils.equals(precomputed, text) ? precomputed : null;
+    }
+
+    private static String key(String style, NewsArticle article) {
+        // Not the ID: favourites and cached articles can share one. Articles without
+        // a link share a key, and lookup checks the text, so they only miss the cache.
+        return style + "#" + article.getLink();
+    }
+}
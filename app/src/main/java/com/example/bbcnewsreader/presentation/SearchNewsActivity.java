@@ -1,8 +1,9 @@
 package com.example.bbcnewsreader.presentation;
 
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.Menu;
@@ -10,7 +11,6 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.Toast;
 
@@ -18,32 +18,60 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.bbcnewsreader.NewsReaderApplication;
 import com.example.bbcnewsreader.R;
+import com.example.bbcnewsreader.business.ArticleStore;
+import com.example.bbcnewsreader.business.DebouncedSearch;
+import com.example.bbcnewsreader.business.FeedAggregator;
+import com.example.bbcnewsreader.business.NewsRefresher;
+import com.example.bbcnewsreader.business.NewsRepository;
+import com.example.bbcnewsreader.business.SearchIndex;
 import com.example.bbcnewsreader.data.NewsArticle;
-import com.example.bbcnewsreader.utils.RSSParser;
+import com.example.bbcnewsreader.utils.AppScheduler;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Activity for searching and loading BBC news articles.
- * Uses AsyncTask to fetch RSS feed from BBC News.
+ * Shows the articles cached by the last fetch straight away, then refreshes them
+ * from the BBC News RSS feeds through NewsRefresher. Whenever the listed articles change,
+ * a new search index is built on the parsing pool and swapped in once complete. Every
+ * result list is handed to the adapter, which diffs it in the background and rebinds
+ * only changed rows.
  */
 public class SearchNewsActivity extends AppCompatActivity {
 
-    private static final String BBC_RSS_URL =
-            "https://feeds.bbci.co.uk/news/world/us_and_canada/rss.xml";
+    private static final int BATCH_SIZE = 10;
+    private static final long BATCH_INTERVAL_MILLIS = 200;
+    private static final long SEARCH_DEBOUNCE_MILLIS = 250;
+    private static final int HISTORY_RESULTS = 50;
 
     private Button btnLoadNews;
     private ProgressBar progressBar;
     private NewsAdapter adapter;
-    private List<NewsArticle> allArticles;
-    private List<NewsArticle> filteredArticles;
+    private final NewsRepository.FavouritesListener favouritesListener =
+            change -> adapter.refreshFavouriteBadges();
+    /** Articles to index, in display order; only touched on the main thread */
+    private final List<NewsArticle> indexedArticles = new ArrayList<>();
+    /** Index being searched; grows as batches are added to it */
+    private SearchIndex searchIndex = new SearchIndex();
+    /** Listed articles not passed to the index yet, and whether they start a new one */
+    private final List<NewsArticle> unindexed = new ArrayList<>();
+    private boolean startNewIndex;
+    private AppScheduler.Task<Void, SearchIndex> indexing;
+    private DebouncedSearch debouncedSearch;
+    private NewsRepository repository;
+    private NewsRefresher refresher;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private LoadNewsListener loadListener;
+    private String currentQuery = "";
+    private boolean showingCache;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,12 +87,21 @@ public class SearchNewsActivity extends AppCompatActivity {
         EditText etSearch = findViewById(R.id.et_search);
         btnLoadNews = findViewById(R.id.btn_load_news);
         progressBar = findViewById(R.id.progress_bar);
-        ListView lvNews = findViewById(R.id.lv_news);
+        RecyclerView rvNews = findViewById(R.id.rv_news);
 
-        allArticles = new ArrayList<>();
-        filteredArticles = new ArrayList<>();
-        adapter = new NewsAdapter(this, filteredArticles);
-        lvNews.setAdapter(adapter);
+        repository = NewsReaderApplication.from(this).getRepository();
+        adapter = new NewsAdapter(repository);
+        adapter.setOnArticleClickListener(this::openArticle);
+        rvNews.setLayoutManager(new LinearLayoutManager(this));
+        rvNews.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        rvNews.setAdapter(adapter);
+        // Badges come from memory; only they are rebound when favourites change
+        repository.addFavouritesListener(favouritesListener);
+        debouncedSearch = new DebouncedSearch(searchIndex, SEARCH_DEBOUNCE_MILLIS,
+                (query, results) -> showResults(results));
+        // Typed queries also reach earlier fetches and favourites via full-text search
+        debouncedSearch.setHistory(repository, HISTORY_RESULTS);
+        refresher = NewsReaderApplication.from(this).getRefresher();
 
         btnLoadNews.setOnClickListener(v -> loadNews());
 
@@ -81,40 +118,140 @@ public class SearchNewsActivity extends AppCompatActivity {
             public void afterTextChanged(Editable s) {}
         });
 
-        lvNews.setOnItemClickListener((parent, view, position, id) -> {
-            NewsArticle article = filteredArticles.get(position);
-            Intent intent = new Intent(SearchNewsActivity.this, ArticleDetailActivity.class);
-            intent.putExtra("article", article);
-            intent.putExtra("from_favourites", false);
-            startActivity(intent);
+        // Stale-while-revalidate: show the cached articles, then refresh them unless a
+        // launch prefetch has only just stored them. One still running is joined.
+        loadCachedNews();
+        if (!refresher.isFresh()) {
+            loadNews();
+        }
+    }
+
+    /**
+     * Open an article on the detail screen, passing only its ArticleStore handle
+     * @param article The tapped article
+     */
+    private void openArticle(NewsArticle article) {
+        Intent intent = new Intent(SearchNewsActivity.this, ArticleDetailActivity.class);
+        intent.putExtra("article_handle", ArticleStore.getInstance().put(article));
+        intent.putExtra("from_favourites", false);
+        startActivity(intent);
+    }
+
+    /**
+     * Load the articles stored by the last fetch in the background, along with
+     * the favourite links the rows are badged from
+     */
+    private void loadCachedNews() {
+        AppScheduler.execute(this, AppScheduler.disk(), () -> {
+            repository.loadFavouriteLinks();
+            return repository.getCachedArticles();
+        }, this::showCachedNews);
+    }
+
+    /**
+     * Display cached articles unless fresh ones have already arrived
+     * @param cached Cached articles
+     */
+    private void showCachedNews(List<NewsArticle> cached) {
+        if (cached.isEmpty() || !indexedArticles.isEmpty()) {
+            return;
+        }
+        showingCache = true;
+        indexedArticles.addAll(cached);
+        appendToIndex(cached);
+    }
+
+    /**
+     * Add newly listed articles to the index being searched, without indexing
+     * the articles before them again
+     * @param articles Articles appended to indexedArticles
+     */
+    private void appendToIndex(List<NewsArticle> articles) {
+        unindexed.addAll(articles);
+        startIndexing();
+    }
+
+    /**
+     * Index indexedArticles from scratch, after the list was replaced.
+     * Indexing still running for the previous list is abandoned.
+     */
+    private void rebuildIndex() {
+        if (indexing != null) {
+            indexing.cancel();
+            indexing = null;
+        }
+        unindexed.clear();
+        unindexed.addAll(indexedArticles);
+        startNewIndex = true;
+        startIndexing();
+    }
+
+    /**
+     * Index the articles waiting on the parsing pool, then search again. One batch is
+     * indexed at a time, so batches reach the index in display order; the index is
+     * thread-safe, so queries keep running against it while a batch is added.
+     */
+    private void startIndexing() {
+        if (indexing != null || (unindexed.isEmpty() && !startNewIndex)) {
+            return;
+        }
+        final List<NewsArticle> batch = new ArrayList<>(unindexed);
+        final SearchIndex target = startNewIndex ? new SearchIndex() : searchIndex;
+        unindexed.clear();
+        startNewIndex = false;
+        indexing = AppScheduler.execute(this, AppScheduler.parsing(), () -> {
+            // Repeated links are indexed once, at their first position
+            target.addAll(batch);
+            return target;
+        }, index -> {
+            indexing = null;
+            if (index != searchIndex) {
+                searchIndex = index;
+                debouncedSearch.setIndex(index);
+            }
+            debouncedSearch.searchNow(currentQuery);
+            startIndexing();
         });
     }
 
     /**
-     * Load news articles from BBC RSS feed
+     * Load news articles from the BBC section feeds, joining the refresh already
+     * running if there is one
      */
     private void loadNews() {
-        new LoadNewsTask().execute(BBC_RSS_URL);
+        progressBar.setVisibility(View.VISIBLE);
+        btnLoadNews.setEnabled(false);
+        loadListener = new LoadNewsListener();
+        refresher.refresh(loadListener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repository.removeFavouritesListener(favouritesListener);
+        if (loadListener != null) {
+            loadListener.cancel();
+            refresher.removeListener(loadListener);
+        }
+        debouncedSearch.shutdown();
     }
 
     /**
-     * Filter articles based on search query
+     * Filter articles based on search query. The search runs in the background
+     * once typing pauses; results arrive in showResults.
      * @param query Search query
      */
     private void filterArticles(String query) {
-        filteredArticles.clear();
-        if (query.isEmpty()) {
-            filteredArticles.addAll(allArticles);
-        } else {
-            String lowerQuery = query.toLowerCase();
-            for (NewsArticle article : allArticles) {
-                if (article.getTitle().toLowerCase().contains(lowerQuery) ||
-                        article.getDescription().toLowerCase().contains(lowerQuery)) {
-                    filteredArticles.add(article);
-                }
-            }
-        }
-        adapter.notifyDataSetChanged();
+        currentQuery = query;
+        debouncedSearch.search(query);
+    }
+
+    /**
+     * Display the results of the latest search
+     * @param results Matching articles; a new list for every search
+     */
+    private void showResults(List<NewsArticle> results) {
+        adapter.submitList(results);
     }
 
     @Override
@@ -144,55 +281,101 @@ public class SearchNewsActivity extends AppCompatActivity {
     }
 
     /**
-     * AsyncTask for loading news articles from RSS feed
+     * Receives the articles of a refresh from NewsRefresher's threads and shows them on
+     * the main thread, in small batches while the feeds are still downloading.
+     * Nothing is shown once the activity is destroyed.
      */
-    private class LoadNewsTask extends AsyncTask<String, Void, List<NewsArticle>> {
+    private class LoadNewsListener implements NewsRefresher.RefreshListener {
 
-        @Override
-        protected void onPreExecute() {
-            progressBar.setVisibility(View.VISIBLE);
-            btnLoadNews.setEnabled(false);
+        private final List<NewsArticle> pending = new ArrayList<>();
+        private long lastPublishTime;
+        private boolean receivedBatch;
+        // Only touched on the main thread
+        private boolean cancelled;
+
+        /**
+         * Stop delivering to the activity. Must be called on the main thread.
+         */
+        void cancel() {
+            cancelled = true;
         }
 
+        /**
+         * Collect a parsed article, publishing a batch once it is big or old enough.
+         * Called from feed worker threads.
+         */
         @Override
-        protected List<NewsArticle> doInBackground(String... urls) {
-            try {
-                URL url = new URL(urls[0]);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(10000);
-                connection.setReadTimeout(10000);
-                connection.connect();
-
-                InputStream inputStream = connection.getInputStream();
-                List<NewsArticle> articles = RSSParser.parse(inputStream);
-                inputStream.close();
-                connection.disconnect();
-
-                return articles;
-            } catch (Exception e) {
-                e.printStackTrace();
-                return null;
+        public void onArticle(NewsArticle article) {
+            synchronized (pending) {
+                pending.add(article);
+                long now = System.currentTimeMillis();
+                if (pending.size() >= BATCH_SIZE || now - lastPublishTime >= BATCH_INTERVAL_MILLIS) {
+                    publishPending();
+                    lastPublishTime = now;
+                }
             }
         }
 
         @Override
-        protected void onPostExecute(List<NewsArticle> articles) {
+        public void onRefreshed(FeedAggregator.Result result) {
+            publishPending();
+            postToActivity(() -> showLoadResult(result));
+        }
+
+        private void publishPending() {
+            synchronized (pending) {
+                if (!pending.isEmpty()) {
+                    final List<NewsArticle> batch = new ArrayList<>(pending);
+                    postToActivity(() -> onProgress(batch));
+                    pending.clear();
+                }
+            }
+        }
+
+        private void postToActivity(final Runnable delivery) {
+            mainHandler.post(() -> {
+                if (!cancelled) {
+                    delivery.run();
+                }
+            });
+        }
+
+        private void onProgress(List<NewsArticle> batch) {
+            // Keep the previous list on screen until the first new headlines arrive
+            boolean replace = !receivedBatch && !showingCache;
+            receivedBatch = true;
+            if (replace) {
+                indexedArticles.clear();
+                indexedArticles.addAll(batch);
+                rebuildIndex();
+            } else {
+                // Cached articles stay listed until the merge; the index skips batch
+                // articles whose link it already holds
+                indexedArticles.addAll(batch);
+                appendToIndex(batch);
+            }
+        }
+
+        private void showLoadResult(FeedAggregator.Result result) {
             progressBar.setVisibility(View.GONE);
             btnLoadNews.setEnabled(true);
 
-            if (articles != null && !articles.isEmpty()) {
-                allArticles.clear();
-                allArticles.addAll(articles);
-                filteredArticles.clear();
-                filteredArticles.addAll(articles);
-                adapter.notifyDataSetChanged();
+            List<NewsArticle> articles = result.getArticles();
+            if (!articles.isEmpty()) {
+                // Replace the streamed list with the merged one, ordered newest first
+                indexedArticles.clear();
+                indexedArticles.addAll(articles);
+                rebuildIndex();
+                showingCache = false;
                 Toast.makeText(SearchNewsActivity.this,
-                        R.string.news_loaded, Toast.LENGTH_SHORT).show();
+                        result.getFailures().isEmpty() ? R.string.news_loaded
+                                : R.string.error_loading_some_feeds,
+                        Toast.LENGTH_SHORT).show();
             } else {
                 Toast.makeText(SearchNewsActivity.this,
-                        R.string.error_loading_news, Toast.LENGTH_SHORT).show();
+                        showingCache ? R.string.showing_cached_news : R.string.error_loading_news,
+                        Toast.LENGTH_SHORT).show();
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -12,6 +12,7 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.example.bbcnewsreader.NewsReaderApplication;
 import com.example.bbcnewsreader.R;
 
 /**
@@ -21,6 +22,7 @@ import com.example.bbcnewsreader.R;
 public class SettingsActivity extends AppCompatActivity {
 
     private CheckBox cbAutoLoad;
+    private CheckBox cbOfflineArticles;
     private SharedPreferences prefs;
 
     @Override
@@ -35,17 +37,23 @@ public class SettingsActivity extends AppCompatActivity {
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
 
         cbAutoLoad = findViewById(R.id.cb_auto_load);
-        prefs = getSharedPreferences("BBCNewsPrefs", MODE_PRIVATE);
+        cbOfflineArticles = findViewById(R.id.cb_offline_articles);
+        prefs = NewsReaderApplication.from(this).getPreferences();
 
         // Load saved setting
         boolean autoLoad = prefs.getBoolean("auto_load", false);
         cbAutoLoad.setChecked(autoLoad);
+        cbOfflineArticles.setChecked(prefs.getBoolean("offline_articles", false));
 
         // Save setting when changed
         cbAutoLoad.setOnCheckedChangeListener((buttonView, isChecked) -> {
             prefs.edit().putBoolean("auto_load", isChecked).apply();
             Toast.makeText(this, R.string.setting_saved, Toast.LENGTH_SHORT).show();
         });
+        cbOfflineArticles.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            prefs.edit().putBoolean("offline_articles", isChecked).apply();
+            Toast.makeText(this, R.string.setting_saved, Toast.LENGTH_SHORT).show();
+        });
     }
 
     @Override
@@ -0,0 +1,327 @@
+package com.example.bbcnewsreader.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility class running background work on app-wide, bounded thread pools.
+ * Network, parsing and disk work each have their own pool so one kind of work never
+ * queues behind another. Speculative downloads have a small, lower priority pool of
+ * their own, so they never hold up the downloads a screen is waiting for. Tasks can be
+ * bound to a LifecycleOwner, which cancels them when it is destroyed, and deliver their
+ * progress and results on the main thread.
+ */
+public final class AppScheduler {
+
+    private static final int NETWORK_THREADS = 6;
+    private static final int PARSING_THREADS =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int DISK_THREADS = 2;
+    private static final int PREFETCH_THREADS = 2;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor NETWORK = createPool("network", NETWORK_THREADS,
+            Process.THREAD_PRIORITY_BACKGROUND);
+    private static final ThreadPoolExecutor PARSING = createPool("parsing", PARSING_THREADS,
+            Process.THREAD_PRIORITY_BACKGROUND);
+    private static final ThreadPoolExecutor DISK = createPool("disk", DISK_THREADS,
+            Process.THREAD_PRIORITY_BACKGROUND);
+    private static final ThreadPoolExecutor PREFETCH = createPool("prefetch", PREFETCH_THREADS,
+            Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE);
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private AppScheduler() {
+    }
+
+    /**
+     * @return Pool for blocking network I/O
+     */
+    public static Executor network() {
+        return NETWORK;
+    }
+
+    /**
+     * @return Pool for CPU work such as parsing, merging and searching
+     */
+    public static Executor parsing() {
+        return PARSING;
+    }
+
+    /**
+     * @return Pool for database and file access
+     */
+    public static Executor disk() {
+        return DISK;
+    }
+
+    /**
+     * @return Pool for network I/O nobody is waiting for, such as downloading pages
+     * for offline reading. Work queues here rather than delaying the network pool.
+     */
+    public static Executor prefetch() {
+        return PREFETCH;
+    }
+
+    /**
+     * Run a task bound to a lifecycle. Must be called on the main thread.
+     * The task is cancelled, and none of its callbacks run, once the owner is destroyed.
+     * @param owner Activity or fragment the task belongs to
+     * @param executor Pool to run the background work on
+     * @param task The task
+     * @return The task, for cancellation
+     */
+    public static <P, R> Task<P, R> execute(LifecycleOwner owner, Executor executor,
+                                            Task<P, R> task) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            task.cancelled = true;
+            return task;
+        }
+        task.bind(owner);
+        return execute(executor, task);
+    }
+
+    /**
+     * Run a task that is not tied to any screen, e.g. an app-wide prefetch
+     * @param executor Pool to run the background work on
+     * @param task The task
+     * @return The task, for cancellation
+     */
+    public static <P, R> Task<P, R> execute(Executor executor, Task<P, R> task) {
+        task.submit(executor);
+        return task;
+    }
+
+    /**
+     * Run a piece of work bound to a lifecycle and hand its result to a callback.
+     * Errors are logged. Must be called on the main thread.
+     * @param owner Activity or fragment the work belongs to
+     * @param executor Pool to run the work on
+     * @param work The background work
+     * @param callback Receives the result on the main thread
+     * @return The task, for cancellation
+     */
+    public static <R> Task<Void, R> execute(LifecycleOwner owner, Executor executor,
+                                            final Callable<R> work,
+                                            final Callback<R> callback) {
+        return execute(owner, executor, new Task<Void, R>() {
+            @Override
+            protected R doInBackground() throws Exception {
+                return work.call();
+            }
+
+            @Override
+            protected void onSuccess(R result) {
+                callback.onResult(result);
+            }
+        });
+    }
+
+    /**
+     * Run a piece of work without a result and without a lifecycle, logging any error
+     * @param executor Pool to run the work on
+     * @param work The background work
+     */
+    public static void execute(Executor executor, final Work work) {
+        execute(executor, new Task<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                work.run();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Run a short piece of work on the main thread after a delay, e.g. a timeout that
+     * cancels background work. The work must not block.
+     * @param work The work
+     * @param delayMillis Delay in milliseconds
+     */
+    public static void schedule(Runnable work, long delayMillis) {
+        MAIN.postDelayed(work, delayMillis);
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    private static ThreadPoolExecutor createPool(final String name, int threads,
+                                                 final int priority) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(() -> {
+                    Process.setThreadPriority(priority);
+                    runnable.run();
+                }, "bbc-" + name + "-" + count.incrementAndGet());
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Receives the result of a background computation on the main thread
+     */
+    public interface Callback<R> {
+        void onResult(R result);
+    }
+
+    /**
+     * Background work without a result
+     */
+    public interface Work {
+        void run() throws Exception;
+    }
+
+    /**
+     * Unit of background work, in the shape of AsyncTask.
+     * doInBackground runs on the chosen pool; every other callback runs on the main thread.
+     * @param <P> Progress type
+     * @param <R> Result type
+     */
+    public abstract static class Task<P, R> {
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+        private LifecycleOwner owner;
+        private LifecycleEventObserver observer;
+
+        /**
+         * Do the work. Check isCancelled() in long loops; the thread is interrupted on cancel.
+         * @return The result
+         * @throws Exception on failure; delivered to onError
+         */
+        protected abstract R doInBackground() throws Exception;
+
+        /**
+         * Called on the main thread for each published progress value
+         * @param progress The progress value
+         */
+        protected void onProgress(P progress) {
+        }
+
+        /**
+         * Called on the main thread when doInBackground returns
+         * @param result The result
+         */
+        protected void onSuccess(R result) {
+        }
+
+        /**
+         * Called on the main thread when doInBackground throws
+         * @param error The failure
+         */
+        protected void onError(Exception error) {
+            error.printStackTrace();
+        }
+
+        /**
+         * Send a progress value to onProgress. May be called from any thread.
+         * @param progress The progress value
+         */
+        protected final void publishProgress(final P progress) {
+            if (cancelled) {
+                return;
+            }
+            MAIN.post(() -> {
+                if (!cancelled) {
+                    onProgress(progress);
+                }
+            });
+        }
+
+        /**
+         * Cancel the task, interrupting its thread if it is running.
+         * None of its main-thread callbacks run afterwards. May be called from any thread.
+         */
+        public final void cancel() {
+            cancelled = true;
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(true);
+            }
+            if (isMainThread()) {
+                unbind();
+            } else {
+                MAIN.post(this::unbind);
+            }
+        }
+
+        /**
+         * @return true if the task was cancelled
+         */
+        public final boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void bind(LifecycleOwner lifecycleOwner) {
+            owner = lifecycleOwner;
+            observer = (source, event) -> {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    cancel();
+                }
+            };
+            owner.getLifecycle().addObserver(observer);
+        }
+
+        private void unbind() {
+            if (owner != null) {
+                owner.getLifecycle().removeObserver(observer);
+                owner = null;
+                observer = null;
+            }
+        }
+
+        private void submit(Executor executor) {
+            FutureTask<Void> runnable = new FutureTask<>(this::runInBackground, null);
+            future = runnable;
+            executor.execute(runnable);
+        }
+
+        private void runInBackground() {
+            if (cancelled) {
+                return;
+            }
+            R result = null;
+            Exception error = null;
+            try {
+                result = doInBackground();
+            } catch (Exception e) {
+                error = e;
+            }
+            final R finalResult = result;
+            final Exception finalError = error;
+            MAIN.post(() -> {
+                unbind();
+                if (cancelled) {
+                    return;
+                }
+                if (finalError != null) {
+                    onError(finalError);
+                } else {
+                    onSuccess(finalResult);
+                }
+            });
+        }
+    }
+}
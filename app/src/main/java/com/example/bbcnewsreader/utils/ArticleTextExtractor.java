@@ -0,0 +1,248 @@
+package com.example.bbcnewsreader.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class downloading an article's web page and extracting its main text.
+ * The text is the article's paragraphs and subheadings, with page furniture such as
+ * scripts, navigation, headers and footers left out, as plain text paragraphs.
+ */
+public final class ArticleTextExtractor {
+
+    private static final int BUFFER_SIZE = 8192;
+    /** Larger pages are not articles worth storing */
+    private static final int MAX_PAGE_BYTES = 2 * 1024 * 1024;
+    /** Less text than this means the page layout was not recognised */
+    private static final int MIN_TEXT_CHARS = 200;
+
+    private static final Pattern FURNITURE_START = tag(
+            "<(script|style|noscript|svg|nav|header|footer|aside|form|figure)\\b");
+    private static final Pattern ARTICLE_START = tag("<article\\b");
+    private static final Pattern ARTICLE_END = tag("</article\\s*>");
+    private static final Pattern MAIN_START = tag("<main\\b");
+    private static final Pattern MAIN_END = tag("</main\\s*>");
+    private static final Pattern COMMENT = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private static final Pattern BLOCK = Pattern.compile(
+            "<(p|h2|h3)\\b[^>]*>(.*?)</\\1\\s*>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern ENTITY =
+            Pattern.compile("&(#[0-9]+|#[xX][0-9a-fA-F]+|[a-zA-Z]+);");
+    private static final Pattern CHARSET = Pattern.compile("charset=\"?([\\w.:-]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private ArticleTextExtractor() {
+    }
+
+    /**
+     * Download a web page
+     * @param httpClient Client to download with
+     * @param pageUrl The page URL
+     * @return The page's HTML
+     * @throws IOException if the download fails or the page is too large
+     */
+    public static String download(HttpClient httpClient, String pageUrl) throws IOException {
+        HttpURLConnection connection = httpClient.open(pageUrl);
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected HTTP " + responseCode + " for " + pageUrl);
+            }
+            ByteArrayOutputStream page = new ByteArrayOutputStream();
+            InputStream in = connection.getInputStream();
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (page.size() + read > MAX_PAGE_BYTES) {
+                        throw new IOException("Page too large: " + pageUrl);
+                    }
+                    page.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+            return new String(page.toByteArray(), charsetOf(connection.getContentType()));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Extract the main text of an article page
+     * @param html The page's HTML
+     * @return Paragraphs separated by blank lines, or null if no article text was found
+     */
+    public static String extract(String html) {
+        String content = COMMENT.matcher(html).replaceAll("");
+        // Narrow to the article element when there is one, else the main element
+        String scoped = between(content, ARTICLE_START, ARTICLE_END);
+        if (scoped == null) {
+            scoped = between(content, MAIN_START, MAIN_END);
+        }
+        content = removeFurniture(scoped != null ? scoped : content);
+
+        StringBuilder text = new StringBuilder();
+        Matcher block = BLOCK.matcher(content);
+        while (block.find()) {
+            String paragraph = WHITESPACE.matcher(
+                    decodeEntities(TAG.matcher(block.group(2)).replaceAll(""))).replaceAll(" ")
+                    .trim();
+            if (!paragraph.isEmpty()) {
+                text.append(text.length() == 0 ? "" : "\n\n").append(paragraph);
+            }
+        }
+        return text.length() >= MIN_TEXT_CHARS ? text.toString() : null;
+    }
+
+    /**
+     * @return The text from the first opening tag to the last closing tag, or null
+     */
+    private static String between(String html, Pattern openTag, Pattern closeTag) {
+        Matcher open = openTag.matcher(html);
+        if (!open.find()) {
+            return null;
+        }
+        Matcher close = closeTag.matcher(html);
+        int end = -1;
+        while (close.find()) {
+            end = close.start();
+        }
+        return end > open.start() ? html.substring(open.start(), end) : null;
+    }
+
+    /**
+     * Remove each furniture element up to the first closing tag of its name; an element
+     * that is never closed is kept. Each name's closing tag search resumes where the last
+     * one ended, so unclosed tags cost one scan of the page rather than one each.
+     */
+    private static String removeFurniture(String html) {
+        Matcher open = FURNITURE_START.matcher(html);
+        Map<String, Matcher> closers = new HashMap<>();
+        Set<String> unclosed = new HashSet<>();
+        StringBuilder kept = new StringBuilder(html.length());
+        int copied = 0;
+        int from = 0;
+        while (open.find(from)) {
+            from = open.end();
+            String name = open.group(1).toLowerCase(Locale.ROOT);
+            if (unclosed.contains(name)) {
+                continue;
+            }
+            Matcher close = closers.get(name);
+            boolean found;
+            if (close == null) {
+                close = tag("</" + name + "\\s*>").matcher(html);
+                closers.put(name, close);
+                found = close.find(from);
+            } else {
+                found = close.start() >= from || close.find(from);
+            }
+            if (!found) {
+                // No closing tag anywhere after this one, so none after any later one either
+                unclosed.add(name);
+                continue;
+            }
+            kept.append(html, copied, open.start());
+            copied = close.end();
+            from = copied;
+        }
+        return kept.append(html, copied, html.length()).toString();
+    }
+
+    private static Pattern tag(String regex) {
+        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+    }
+
+    private static String decodeEntities(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        Matcher entity = ENTITY.matcher(text);
+        StringBuffer decoded = new StringBuffer(text.length());
+        while (entity.find()) {
+            String replacement = decodeEntity(entity.group(1));
+            entity.appendReplacement(decoded,
+                    Matcher.quoteReplacement(replacement != null ? replacement : entity.group()));
+        }
+        entity.appendTail(decoded);
+        return decoded.toString();
+    }
+
+    /**
+     * @return The character for an entity name or number, or null if it is not known
+     */
+    private static String decodeEntity(String name) {
+        if (name.charAt(0) == '#') {
+            try {
+                int codePoint = name.charAt(1) == 'x' || name.charAt(1) == 'X'
+                        ? Integer.parseInt(name.substring(2), 16)
+                        : Integer.parseInt(name.substring(1));
+                return Character.isValidCodePoint(codePoint)
+                        ? new String(Character.toChars(codePoint)) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        switch (name) {
+            case "amp":
+                return "&";
+            case "lt":
+                return "<";
+            case "gt":
+                return ">";
+            case "quot":
+                return "\"";
+            case "apos":
+                return "'";
+            case "nbsp":
+                return " ";
+            case "lsquo":
+                return "‘";
+            case "rsquo":
+                return "’";
+            case "ldquo":
+                return "“";
+            case "rdquo":
+                return "”";
+            case "ndash":
+                return "–";
+            case "mdash":
+                return "—";
+            case "hellip":
+                return "…";
+            case "pound":
+                return "£";
+            case "euro":
+                return "€";
+            default:
+                return null;
+        }
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            Matcher charset = CHARSET.matcher(contentType);
+            if (charset.find()) {
+                try {
+                    return Charset.forName(charset.group(1));
+                } catch (IllegalArgumentException e) {
+                    // Unknown charset; fall back to the HTML5 default
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.bbcnewsreader.utils;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.InputStream;
+
+/**
+ * Allocation-light parser engine for large feeds.
+ * Reuses one XmlPullParser and text buffer per thread, matches tag names without
+ * creating strings and never reads text outside the fields it keeps. A field that
+ * arrives in a single chunk is used as-is; only split fields are joined in a buffer.
+ * Namespace-aware, so items and their fields are matched in the default namespace only
+ * and the first media:thumbnail of an item is read from its url attribute. A field's
+ * value is all text inside it, including text of nested elements.
+ */
+public class FastFeedParser implements FeedParser {
+
+    private static final int FIELD_NONE = 0;
+    private static final int FIELD_TITLE = 1;
+    private static final int FIELD_DESCRIPTION = 2;
+    private static final int FIELD_LINK = 3;
+    private static final int FIELD_PUB_DATE = 4;
+
+    private final XmlPullParserFactory factory;
+    private final ThreadLocal<ParserState> states = new ThreadLocal<>();
+
+    /**
+     * Constructor
+     * @throws XmlPullParserException if no pull parser implementation is available
+     */
+    public FastFeedParser() throws XmlPullParserException {
+        factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+    }
+
+    @Override
+    public void parse(InputStream inputStream, ArticleListener listener) throws Exception {
+        ParserState state = states.get();
+        if (state == null) {
+            synchronized (factory) {
+                state = new ParserState(factory.newPullParser());
+            }
+            states.set(state);
+        }
+        XmlPullParser parser = state.parser;
+        StringBuilder text = state.text;
+
+        parser.setInput(inputStream, null);
+        try {
+            NewsArticle currentArticle = null;
+            int field = FIELD_NONE;
+            int fieldDepth = 0;
+            String firstChunk = null;
+            int chunks = 0;
+            int eventType = parser.getEventType();
+
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                switch (eventType) {
+                    case XmlPullParser.START_TAG:
+                        if (currentArticle == null) {
+                            if (parser.getNamespace().isEmpty()
+                                    && parser.getName().equalsIgnoreCase("item")) {
+                                currentArticle = new NewsArticle();
+                            }
+                        } else if (field == FIELD_NONE) {
+                            String namespace = parser.getNamespace();
+                            if (namespace.isEmpty()) {
+                                field = fieldFor(parser.getName());
+                                fieldDepth = parser.getDepth();
+                                firstChunk = null;
+                                chunks = 0;
+                            } else if (currentArticle.getThumbnailUrl() == null
+                                    && MEDIA_NAMESPACE.equals(namespace)
+                                    && "thumbnail".equals(parser.getName())) {
+                                currentArticle.setThumbnailUrl(
+                                        parser.getAttributeValue(null, "url"));
+                            }
+                        }
+                        break;
+
+                    case XmlPullParser.TEXT:
+                        // Text of elements nested inside a field belongs to the field. Other
+                        // text, e.g. whitespace between elements, still arrives as an event
+                        // but its string is never fetched
+                        if (field != FIELD_NONE) {
+                            String chunk = parser.getText();
+                            if (chunks == 0) {
+                                firstChunk = chunk;
+                            } else {
+                                if (chunks == 1) {
+                                    text.setLength(0);
+                                    text.append(firstChunk);
+                                }
+                                text.append(chunk);
+                            }
+                            chunks++;
+                        }
+                        break;
+
+                    case XmlPullParser.END_TAG:
+                        if (field != FIELD_NONE) {
+                            if (parser.getDepth() == fieldDepth) {
+                                if (chunks > 0) {
+                                    assign(currentArticle, field,
+                                            chunks == 1 ? firstChunk : text.toString());
+                                }
+                                field = FIELD_NONE;
+                            }
+                        } else if (currentArticle != null && parser.getNamespace().isEmpty()
+                                && parser.getName().equalsIgnoreCase("item")) {
+                            listener.onArticle(currentArticle);
+                            currentArticle = null;
+                        }
+                        break;
+                }
+                eventType = parser.next();
+            }
+        } finally {
+            // Drop the reference to the stream; the parser itself is kept for reuse
+            parser.setInput(null);
+            if (text.capacity() > ParserState.MAX_RETAINED_TEXT) {
+                state.text = new StringBuilder(ParserState.INITIAL_TEXT);
+            }
+        }
+    }
+
+    /**
+     * Map a child element of an item to the field it fills, ignoring case
+     */
+    private static int fieldFor(String tagName) {
+        switch (tagName.length()) {
+            case 4:
+                return tagName.equalsIgnoreCase("link") ? FIELD_LINK : FIELD_NONE;
+            case 5:
+                return tagName.equalsIgnoreCase("title") ? FIELD_TITLE : FIELD_NONE;
+            case 7:
+                return tagName.equalsIgnoreCase("pubDate") ? FIELD_PUB_DATE : FIELD_NONE;
+            case 11:
+                return tagName.equalsIgnoreCase("description") ? FIELD_DESCRIPTION : FIELD_NONE;
+            default:
+                return FIELD_NONE;
+        }
+    }
+
+    private static void assign(NewsArticle article, int field, String value) {
+        switch (field) {
+            case FIELD_TITLE:
+                article.setTitle(value);
+                break;
+            case FIELD_DESCRIPTION:
+                article.setDescription(value);
+                break;
+            case FIELD_LINK:
+                article.setLink(value);
+                break;
+            case FIELD_PUB_DATE:
+                article.setPubDate(value);
+                article.setPubTime(PubDateParser.parse(value));
+                break;
+        }
+    }
+
+    /**
+     * Per-thread parser and buffers, reused across documents
+     */
+    private static class ParserState {
+        static final int INITIAL_TEXT = 256;
+        static final int MAX_RETAINED_TEXT = 64 * 1024;
+
+        final XmlPullParser parser;
+        StringBuilder text = new StringBuilder(INITIAL_TEXT);
+
+        ParserState(XmlPullParser parser) {
+            this.parser = parser;
+        }
+    }
+}
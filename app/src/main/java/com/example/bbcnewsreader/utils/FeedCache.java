@@ -0,0 +1,337 @@
+package com.example.bbcnewsreader.utils;
+
+import android.content.Context;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class caching RSS feeds on disk and in memory.
+ * Sends conditional GET requests (If-None-Match / If-Modified-Since) so that an
+ * unchanged feed is neither downloaded nor parsed again.
+ */
+public class FeedCache {
+
+    private static final String CACHE_DIR = "feeds";
+    private static final String BODY_SUFFIX = ".xml";
+    private static final String META_SUFFIX = ".meta";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File cacheDir;
+    private final HttpClient httpClient;
+    private final Map<String, List<NewsArticle>> parsedFeeds = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param context Application context
+     * @param httpClient Client the feeds are downloaded with
+     */
+    public FeedCache(Context context, HttpClient httpClient) {
+        this(new File(context.getCacheDir(), CACHE_DIR), httpClient);
+    }
+
+    /**
+     * Constructor for tests
+     * @param cacheDir Directory the feed bodies and validators are stored in
+     * @param httpClient Client the feeds are downloaded with
+     */
+    FeedCache(File cacheDir, HttpClient httpClient) {
+        this.cacheDir = cacheDir;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Fetch a feed, revalidating any cached copy with the server.
+     * On 304 Not Modified the previously parsed articles are returned as-is.
+     * @param feedUrl The RSS feed URL
+     * @return Unmodifiable list of parsed news articles
+     * @throws Exception if the download or parsing fails
+     */
+    public List<NewsArticle> fetch(String feedUrl) throws Exception {
+        return fetch(feedUrl, null);
+    }
+
+    /**
+     * Fetch a feed, handing each article to the listener as soon as it is available.
+     * A changed feed is parsed while it downloads; an unchanged one replays the cached articles.
+     * @param feedUrl The RSS feed URL
+     * @param listener Listener receiving each article, or null
+     * @return Unmodifiable list of parsed news articles
+     * @throws Exception if the download or parsing fails
+     */
+    public List<NewsArticle> fetch(String feedUrl, FeedParser.ArticleListener listener)
+            throws Exception {
+        return fetch(feedUrl, listener, null);
+    }
+
+    /**
+     * Fetch a feed as fetch(String, ArticleListener) does, letting another thread abort it
+     * @param feedUrl The RSS feed URL
+     * @param listener Listener receiving each article, or null
+     * @param cancellation Closes the connection when cancelled, or null
+     * @return Unmodifiable list of parsed news articles
+     * @throws Exception if the download or parsing fails, or the fetch was cancelled
+     */
+    public List<NewsArticle> fetch(String feedUrl, FeedParser.ArticleListener listener,
+                                   Cancellation cancellation) throws Exception {
+        // A hash of the whole URL, so two feeds never share files
+        String key = ImageLoader.fileNameFor(feedUrl);
+        File bodyFile = new File(cacheDir, key + BODY_SUFFIX);
+        File metaFile = new File(cacheDir, key + META_SUFFIX);
+        String[] validators = bodyFile.exists() ? readValidators(metaFile) : null;
+
+        HttpURLConnection connection = httpClient.open(feedUrl);
+        try {
+            if (cancellation != null) {
+                cancellation.attach(connection);
+            }
+            connection.setUseCaches(false);
+            if (validators != null) {
+                if (validators[0] != null) {
+                    connection.setRequestProperty("If-None-Match", validators[0]);
+                }
+                if (validators[1] != null) {
+                    connection.setRequestProperty("If-Modified-Since", validators[1]);
+                }
+            }
+            connection.connect();
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+                List<NewsArticle> cached = getParsed(feedUrl);
+                if (cached != null) {
+                    if (listener != null) {
+                        for (NewsArticle article : cached) {
+                            listener.onArticle(article);
+                        }
+                    }
+                    return cached;
+                }
+                // Process was restarted since the last fetch: parse the stored body once
+                InputStream inputStream = new FileInputStream(bodyFile);
+                try {
+                    return putParsed(feedUrl, parse(inputStream, listener));
+                } finally {
+                    inputStream.close();
+                }
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected HTTP " + responseCode + " for " + feedUrl);
+            }
+
+            // Parse while downloading, keeping a copy of the raw bytes for the disk cache
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            InputStream inputStream = new TeeInputStream(connection.getInputStream(), body);
+            List<NewsArticle> articles;
+            try {
+                articles = parse(inputStream, listener);
+                drain(inputStream);
+            } finally {
+                inputStream.close();
+            }
+            // The parser takes a body cut off between two tags for a whole document,
+            // and some streams end quietly when the connection drops
+            int contentLength = connection.getContentLength();
+            if (contentLength >= 0 && body.size() != contentLength) {
+                throw new IOException("Truncated feed: " + body.size() + " of " + contentLength +
+                        " bytes from " + feedUrl);
+            }
+
+            store(bodyFile, metaFile, body.toByteArray(), connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified"));
+            return putParsed(feedUrl, articles);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static List<NewsArticle> parse(InputStream inputStream,
+                                           final FeedParser.ArticleListener listener)
+            throws Exception {
+        final List<NewsArticle> articles = new ArrayList<>();
+        RSSParser.parse(inputStream, article -> {
+            articles.add(article);
+            if (listener != null) {
+                listener.onArticle(article);
+            }
+        });
+        return articles;
+    }
+
+    private synchronized List<NewsArticle> getParsed(String feedUrl) {
+        return parsedFeeds.get(feedUrl);
+    }
+
+    private synchronized List<NewsArticle> putParsed(String feedUrl, List<NewsArticle> articles) {
+        List<NewsArticle> unmodifiable = Collections.unmodifiableList(articles);
+        parsedFeeds.put(feedUrl, unmodifiable);
+        return unmodifiable;
+    }
+
+    /**
+     * Persist a feed body and its validators. Failures are ignored because the
+     * cache is only an optimisation; the next fetch simply downloads again.
+     */
+    private void store(File bodyFile, File metaFile, byte[] body, String etag,
+                       String lastModified) {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            return;
+        }
+        metaFile.delete();
+        if (etag == null && lastModified == null) {
+            bodyFile.delete();
+            return;
+        }
+        try {
+            File tmp = File.createTempFile("feed", ".tmp", cacheDir);
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(bodyFile)) {
+                tmp.delete();
+                return;
+            }
+            Writer writer = new FileWriter(metaFile);
+            try {
+                writer.write((etag != null ? etag : "") + "\n" +
+                        (lastModified != null ? lastModified : "") + "\n");
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            bodyFile.delete();
+            metaFile.delete();
+        }
+    }
+
+    /**
+     * @return {ETag, Last-Modified}, either of which may be null, or null if nothing is stored
+     */
+    private static String[] readValidators(File metaFile) {
+        if (!metaFile.exists()) {
+            return null;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(metaFile));
+            try {
+                String etag = reader.readLine();
+                String lastModified = reader.readLine();
+                String[] validators = {
+                        etag == null || etag.isEmpty() ? null : etag,
+                        lastModified == null || lastModified.isEmpty() ? null : lastModified
+                };
+                return validators[0] == null && validators[1] == null ? null : validators;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read any bytes left after the closing tag so the cached body is complete
+     */
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (inputStream.read(buffer) != -1) {
+            // Discard; the tee keeps the copy
+        }
+    }
+
+    /**
+     * Aborts a fetch from another thread. A thread blocked reading a connection ignores
+     * interrupts, so cancelling disconnects the connection, which fails the read.
+     */
+    public static class Cancellation {
+        private HttpURLConnection connection;
+        private boolean cancelled;
+
+        /**
+         * Disconnect the fetch's connection, or stop it connecting if it has not yet
+         */
+        public void cancel() {
+            HttpURLConnection current;
+            synchronized (this) {
+                cancelled = true;
+                current = connection;
+            }
+            if (current != null) {
+                current.disconnect();
+            }
+        }
+
+        private synchronized void attach(HttpURLConnection connection) throws IOException {
+            if (cancelled) {
+                throw new InterruptedIOException("Fetch cancelled");
+            }
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * Input stream that copies everything read through it into a byte buffer
+     */
+    private static class TeeInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream copy;
+
+        TeeInputStream(InputStream in, ByteArrayOutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                copy.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Route skips through read() so the copy stays complete
+            byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
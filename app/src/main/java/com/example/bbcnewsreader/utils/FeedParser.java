@@ -0,0 +1,49 @@
+package com.example.bbcnewsreader.utils;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser engine turning an RSS document into news articles.
+ * Implementations must produce identical articles for the same input.
+ */
+public interface FeedParser {
+
+    /** Media RSS namespace, declared by BBC feeds for their media:thumbnail elements */
+    String MEDIA_NAMESPACE = "http://search.yahoo.com/mrss/";
+
+    /**
+     * Receives articles as soon as they have been parsed
+     */
+    interface ArticleListener {
+        /**
+         * Called once for every complete item in the feed, in document order
+         * @param article The parsed article
+         */
+        void onArticle(NewsArticle article);
+    }
+
+    /**
+     * Parse RSS feed from input stream, handing each article to the listener
+     * as soon as its closing item tag has been read.
+     * @param inputStream The RSS feed input stream
+     * @param listener Listener receiving each parsed article
+     * @throws Exception if parsing fails
+     */
+    void parse(InputStream inputStream, ArticleListener listener) throws Exception;
+
+    /**
+     * Parse RSS feed from input stream
+     * @param inputStream The RSS feed input stream
+     * @return List of parsed news articles
+     * @throws Exception if parsing fails
+     */
+    default List<NewsArticle> parse(InputStream inputStream) throws Exception {
+        List<NewsArticle> articles = new ArrayList<>();
+        parse(inputStream, articles::add);
+        return articles;
+    }
+}
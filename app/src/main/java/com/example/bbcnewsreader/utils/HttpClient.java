@@ -0,0 +1,39 @@
+package com.example.bbcnewsreader.utils;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Utility class opening HTTP connections with the app's shared settings.
+ * One instance serves feeds, images and article pages; HttpURLConnection pools
+ * the underlying sockets per host, so connections opened here reuse them.
+ */
+public class HttpClient {
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final String userAgent;
+
+    /**
+     * Constructor
+     * @param userAgent User-Agent header sent with every request
+     */
+    public HttpClient(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Open a GET connection. The caller reads the response and disconnects.
+     * @param url The URL
+     * @return The connection, not yet connected
+     * @throws IOException if the URL cannot be opened
+     */
+    public HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestProperty("User-Agent", userAgent);
+        return connection;
+    }
+}
@@ -0,0 +1,469 @@
+package com.example.bbcnewsreader.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.example.bbcnewsreader.R;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class loading remote images into ImageViews.
+ * Images are decoded downsampled to the size of the view that shows them and kept in a
+ * memory cache bounded in bytes; the downloaded files are kept in a bounded disk cache,
+ * named by the SHA-1 of their URL. Files are read on the disk pool and decoded on the
+ * parsing pool.
+ * Views waiting for the same image at the same size share one load, and a load is
+ * cancelled once no view is waiting for it, e.g. because its rows were recycled.
+ * All public methods must be called on the main thread.
+ */
+public class ImageLoader {
+
+    private static final String CACHE_DIR = "images";
+    private static final long MAX_DISK_BYTES = 20L * 1024 * 1024;
+    /** Share of the heap the decoded images may use */
+    private static final int MEMORY_FRACTION = 8;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File cacheDir;
+    private final HttpClient httpClient;
+    private final DisplayMetrics displayMetrics;
+    private final LruCache<String, Bitmap> memoryCache;
+    /** Loads in progress, keyed like the memory cache */
+    private final Map<String, Request> inFlight = new HashMap<>();
+    /** Bytes in the disk cache, or -1 until it has been measured; guarded by this */
+    private long diskBytes = -1;
+
+    /**
+     * Constructor
+     * @param context Application context
+     * @param httpClient Client the images are downloaded with
+     */
+    public ImageLoader(Context context, HttpClient httpClient) {
+        cacheDir = new File(context.getCacheDir(), CACHE_DIR);
+        this.httpClient = httpClient;
+        displayMetrics = context.getResources().getDisplayMetrics();
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE,
+                Runtime.getRuntime().maxMemory() / MEMORY_FRACTION);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Show an image in a view, replacing any load still pending for it.
+     * The view is cleared while the image loads, and stays clear if it fails.
+     * @param url Image URL, or null to clear the view
+     * @param view View to show the image in
+     */
+    public void load(String url, ImageView view) {
+        cancel(view);
+        if (url == null || url.isEmpty()) {
+            view.setImageDrawable(null);
+            return;
+        }
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int width = targetSize(params != null ? params.width : 0, view.getWidth(),
+                displayMetrics.widthPixels);
+        int height = targetSize(params != null ? params.height : 0, view.getHeight(),
+                displayMetrics.heightPixels);
+        String key = width + "x" + height + ":" + url;
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageDrawable(null);
+        Request request = inFlight.get(key);
+        if (request == null) {
+            request = new Request(key, url, width, height);
+            inFlight.put(key, request);
+            request.readDisk(false);
+        }
+        request.targets.add(view);
+        view.setTag(R.id.tag_image_request, request);
+    }
+
+    /**
+     * Stop waiting for the image pending for a view, if any. The load itself is
+     * cancelled when no other view is waiting for it.
+     * @param view The view
+     */
+    public void cancel(ImageView view) {
+        Request request = (Request) view.getTag(R.id.tag_image_request);
+        if (request == null) {
+            return;
+        }
+        view.setTag(R.id.tag_image_request, null);
+        request.targets.remove(view);
+        if (request.targets.isEmpty()) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * Drop every decoded image from memory, e.g. when the system is low on memory
+     */
+    public void clearMemory() {
+        memoryCache.evictAll();
+    }
+
+    /**
+     * @return The view's fixed size, else its laid out size, else the screen size
+     */
+    private static int targetSize(int layoutSize, int measuredSize, int screenSize) {
+        if (layoutSize > 0) {
+            return layoutSize;
+        }
+        return measuredSize > 0 ? measuredSize : screenSize;
+    }
+
+    private File fileFor(String url) {
+        return new File(cacheDir, fileNameFor(url));
+    }
+
+    /**
+     * @return The disk cache file name for a URL: the hex SHA-1 of the URL.
+     * FeedCache names its files the same way.
+     */
+    static String fileNameFor(String url) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1")
+                    .digest(url.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android platform provides SHA-1
+            throw new IllegalStateException(e);
+        }
+        StringBuilder name = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Read a whole file into memory
+     */
+    private static byte[] read(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode an image at the largest power-of-two reduction that still covers the size
+     * @return The bitmap, or null if the data is not a decodable image
+     */
+    private static Bitmap decode(byte[] data, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    /**
+     * @return The largest power of two the image can be reduced by and still cover the size
+     */
+    static int sampleSize(int imageWidth, int imageHeight, int width, int height) {
+        int sampleSize = 1;
+        while (imageWidth / (sampleSize * 2) >= width
+                && imageHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Download an image into the disk cache, via a temporary file so a partial
+     * download is never read as an image
+     */
+    private void download(String url, File file) throws IOException {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IOException("Cannot create " + cacheDir);
+        }
+        HttpURLConnection connection = httpClient.open(url);
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected HTTP " + responseCode + " for " + url);
+            }
+            File tmp = File.createTempFile("image", ".tmp", cacheDir);
+            try {
+                InputStream in = connection.getInputStream();
+                OutputStream out = new FileOutputStream(tmp);
+                try {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        if (Thread.interrupted()) {
+                            throw new IOException("Cancelled " + url);
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                } finally {
+                    out.close();
+                    in.close();
+                }
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("Cannot store " + url);
+                }
+            } finally {
+                tmp.delete();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Account for a newly downloaded file and, once the disk cache is over its limit,
+     * delete the least recently used files until it is back under three quarters of it
+     */
+    private synchronized void trimDisk(long addedBytes) {
+        File[] files = null;
+        if (diskBytes < 0) {
+            files = cacheDir.listFiles();
+            diskBytes = 0;
+            if (files != null) {
+                for (File file : files) {
+                    diskBytes += file.length();
+                }
+            }
+        } else {
+            diskBytes += addedBytes;
+        }
+        if (diskBytes <= MAX_DISK_BYTES) {
+            return;
+        }
+        if (files == null) {
+            files = cacheDir.listFiles();
+            if (files == null) {
+                return;
+            }
+        }
+        // Reads touch their file, so the oldest modification time is the least recently used
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(lastModified[a], lastModified[b]);
+            }
+        });
+        for (int i = 0; i < order.length && diskBytes > MAX_DISK_BYTES / 4 * 3; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                diskBytes -= length;
+            }
+        }
+    }
+
+    /**
+     * One image at one size and the views waiting for it. Reads the disk cache on the
+     * disk pool and decodes on the parsing pool; on a miss, downloads on the network pool
+     * and reads the disk again. Only touched on the main thread; the current stage runs
+     * as a cancellable task.
+     */
+    private final class Request {
+        final String key;
+        final String url;
+        final int width;
+        final int height;
+        final List<ImageView> targets = new ArrayList<>(1);
+        private AppScheduler.Task<Void, ?> task;
+
+        Request(String key, String url, int width, int height) {
+            this.key = key;
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * @param downloaded true if the file was just downloaded, so a miss is a failure
+         */
+        void readDisk(final boolean downloaded) {
+            task = AppScheduler.execute(AppScheduler.disk(),
+                    new AppScheduler.Task<Void, byte[]>() {
+                @Override
+                protected byte[] doInBackground() throws IOException {
+                    File file = fileFor(url);
+                    if (downloaded) {
+                        trimDisk(file.length());
+                    }
+                    if (!file.isFile()) {
+                        return null;
+                    }
+                    if (!downloaded) {
+                        file.setLastModified(System.currentTimeMillis());
+                    }
+                    return read(file);
+                }
+
+                @Override
+                protected void onSuccess(byte[] data) {
+                    if (data != null) {
+                        decode(data, downloaded);
+                    } else if (!downloaded) {
+                        download();
+                    } else {
+                        finish(null);
+                    }
+                }
+
+                @Override
+                protected void onError(Exception error) {
+                    super.onError(error);
+                    finish(null);
+                }
+            });
+        }
+
+        private void decode(final byte[] data, final boolean downloaded) {
+            task = AppScheduler.execute(AppScheduler.parsing(),
+                    new AppScheduler.Task<Void, Bitmap>() {
+                @Override
+                protected Bitmap doInBackground() {
+                    return ImageLoader.decode(data, width, height);
+                }
+
+                @Override
+                protected void onSuccess(Bitmap bitmap) {
+                    if (bitmap != null) {
+                        finish(bitmap);
+                    } else {
+                        discard(downloaded);
+                    }
+                }
+
+                @Override
+                protected void onError(Exception error) {
+                    super.onError(error);
+                    finish(null);
+                }
+            });
+        }
+
+        /**
+         * Delete a cached file that is not an image, so it is not served again,
+         * then download it afresh unless it was just downloaded
+         */
+        private void discard(final boolean downloaded) {
+            task = AppScheduler.execute(AppScheduler.disk(),
+                    new AppScheduler.Task<Void, Void>() {
+                @Override
+                protected Void doInBackground() {
+                    fileFor(url).delete();
+                    return null;
+                }
+
+                @Override
+                protected void onSuccess(Void result) {
+                    if (downloaded) {
+                        finish(null);
+                    } else {
+                        download();
+                    }
+                }
+
+                @Override
+                protected void onError(Exception error) {
+                    super.onError(error);
+                    finish(null);
+                }
+            });
+        }
+
+        private void download() {
+            task = AppScheduler.execute(AppScheduler.network(),
+                    new AppScheduler.Task<Void, Void>() {
+                @Override
+                protected Void doInBackground() throws Exception {
+                    ImageLoader.this.download(url, fileFor(url));
+                    return null;
+                }
+
+                @Override
+                protected void onSuccess(Void result) {
+                    readDisk(true);
+                }
+
+                @Override
+                protected void onError(Exception error) {
+                    super.onError(error);
+                    finish(null);
+                }
+            });
+        }
+
+        /**
+         * Show the image in every view still waiting for it
+         */
+        private void finish(Bitmap bitmap) {
+            inFlight.remove(key);
+            if (bitmap != null) {
+                memoryCache.put(key, bitmap);
+            }
+            for (ImageView view : targets) {
+                view.setTag(R.id.tag_image_request, null);
+                if (bitmap != null) {
+                    view.setImageBitmap(bitmap);
+                }
+            }
+            targets.clear();
+        }
+
+        void cancel() {
+            inFlight.remove(key);
+            if (task != null) {
+                task.cancel();
+            }
+        }
+    }
+}
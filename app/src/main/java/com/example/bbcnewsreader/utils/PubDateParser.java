@@ -0,0 +1,64 @@
+package com.example.bbcnewsreader.utils;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Utility class converting RSS publication dates to epoch milliseconds.
+ * SimpleDateFormat is costly to create and not thread-safe, so each thread
+ * keeps one formatter per accepted layout and reuses them.
+ */
+public final class PubDateParser {
+
+    /** Time of an article whose date is missing or cannot be parsed */
+    public static final long UNKNOWN = 0;
+
+    /**
+     * RFC 822 layouts, most common first: the day name and the seconds are optional.
+     * Zones may be names such as GMT or EST, or numeric such as +0100. Two-digit years
+     * are read as the nearest century; four-digit years as they are.
+     */
+    private static final String[] RFC_822_PATTERNS = {
+            "EEE, dd MMM yy HH:mm:ss zzz",
+            "dd MMM yy HH:mm:ss zzz",
+            "EEE, dd MMM yy HH:mm zzz",
+            "dd MMM yy HH:mm zzz"
+    };
+
+    private static final ThreadLocal<SimpleDateFormat[]> FORMATS =
+            new ThreadLocal<SimpleDateFormat[]>() {
+                @Override
+                protected SimpleDateFormat[] initialValue() {
+                    SimpleDateFormat[] formats = new SimpleDateFormat[RFC_822_PATTERNS.length];
+                    for (int i = 0; i < formats.length; i++) {
+                        formats[i] = new SimpleDateFormat(RFC_822_PATTERNS[i], Locale.US);
+                    }
+                    return formats;
+                }
+            };
+
+    private PubDateParser() {
+    }
+
+    /**
+     * Parse an RFC 822 date such as "Sat, 17 Oct 2026 14:05:11 GMT"
+     * @param pubDate The date as found in the feed, or null
+     * @return Epoch milliseconds, or UNKNOWN
+     */
+    public static long parse(String pubDate) {
+        if (pubDate == null) {
+            return UNKNOWN;
+        }
+        String trimmed = pubDate.trim();
+        for (SimpleDateFormat format : FORMATS.get()) {
+            // A failed parse returns null here instead of throwing
+            Date date = format.parse(trimmed, new ParsePosition(0));
+            if (date != null) {
+                return date.getTime();
+            }
+        }
+        return UNKNOWN;
+    }
+}
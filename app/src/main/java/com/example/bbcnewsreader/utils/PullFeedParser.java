@@ -0,0 +1,116 @@
+package com.example.bbcnewsreader.utils;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Reference parser engine using a fresh XmlPullParser for every document.
+ * Simple and obviously correct; FastFeedParser is checked against it.
+ * Items and their fields are read from the default namespace; the thumbnail from the
+ * first media:thumbnail element. A field's value is all text inside it, including
+ * text of nested elements.
+ */
+public class PullFeedParser implements FeedParser {
+
+    @Override
+    public void parse(InputStream inputStream, ArticleListener listener) throws Exception {
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        XmlPullParser parser = factory.newPullParser();
+        parser.setInput(inputStream, null);
+
+        NewsArticle currentArticle = null;
+        // Lowercased name of the item field being read, and its depth
+        String field = null;
+        int fieldDepth = 0;
+        StringBuilder text = new StringBuilder();
+        boolean hasText = false;
+        int eventType = parser.getEventType();
+
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            String tagName = parser.getName();
+
+            switch (eventType) {
+                case XmlPullParser.START_TAG:
+                    String namespace = parser.getNamespace();
+                    if (currentArticle == null) {
+                        if (namespace.isEmpty() && "item".equalsIgnoreCase(tagName)) {
+                            currentArticle = new NewsArticle();
+                        }
+                    } else if (field == null) {
+                        if (namespace.isEmpty() && isField(tagName)) {
+                            field = tagName.toLowerCase(Locale.ROOT);
+                            fieldDepth = parser.getDepth();
+                            text.setLength(0);
+                            hasText = false;
+                        } else if (MEDIA_NAMESPACE.equals(namespace)
+                                && "thumbnail".equals(tagName)
+                                && currentArticle.getThumbnailUrl() == null) {
+                            currentArticle.setThumbnailUrl(parser.getAttributeValue(null, "url"));
+                        }
+                    }
+                    break;
+
+                case XmlPullParser.TEXT:
+                    // Text may arrive in several chunks, and around nested elements,
+                    // so collect it until the field's end tag
+                    if (field != null) {
+                        text.append(parser.getText());
+                        hasText = true;
+                    }
+                    break;
+
+                case XmlPullParser.END_TAG:
+                    if (field != null) {
+                        if (parser.getDepth() == fieldDepth) {
+                            if (hasText) {
+                                assign(currentArticle, field, text.toString());
+                            }
+                            field = null;
+                        }
+                    } else if (currentArticle != null && parser.getNamespace().isEmpty()
+                            && "item".equalsIgnoreCase(tagName)) {
+                        listener.onArticle(currentArticle);
+                        currentArticle = null;
+                    }
+                    break;
+            }
+            eventType = parser.next();
+        }
+    }
+
+    private static boolean isField(String tagName) {
+        switch (tagName.toLowerCase(Locale.ROOT)) {
+            case "title":
+            case "description":
+            case "link":
+            case "pubdate":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void assign(NewsArticle article, String field, String value) {
+        switch (field) {
+            case "title":
+                article.setTitle(value);
+                break;
+            case "description":
+                article.setDescription(value);
+                break;
+            case "link":
+                article.setLink(value);
+                break;
+            case "pubdate":
+                article.setPubDate(value);
+                article.setPubTime(PubDateParser.parse(value));
+                break;
+        }
+    }
+}
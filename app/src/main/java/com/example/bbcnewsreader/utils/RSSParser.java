@@ -2,19 +2,31 @@ package com.example.bbcnewsreader.utils;
 
 import com.example.bbcnewsreader.data.NewsArticle;
 
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Utility class for parsing RSS feeds from BBC News.
- * Uses XmlPullParser to extract article information.
+ * Delegates to the default FeedParser engine.
  */
 public class RSSParser {
 
+    private static FeedParser defaultParser;
+
+    /**
+     * Get the engine used by the static parse methods
+     * @return The default feed parser
+     * @throws XmlPullParserException if no pull parser implementation is available
+     */
+    public static synchronized FeedParser getDefault() throws XmlPullParserException {
+        if (defaultParser == null) {
+            defaultParser = new FastFeedParser();
+        }
+        return defaultParser;
+    }
+
     /**
      * Parse RSS feed from input stream
      * @param inputStream The RSS feed input stream
@@ -22,59 +34,18 @@ public class RSSParser {
      * @throws Exception if parsing fails
      */
     public static List<NewsArticle> parse(InputStream inputStream) throws Exception {
-        List<NewsArticle> articles = new ArrayList<>();
-
-        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
-        factory.setNamespaceAware(false);
-        XmlPullParser parser = factory.newPullParser();
-        parser.setInput(inputStream, null);
-
-        NewsArticle currentArticle = null;
-        String currentTag = null;
-        int eventType = parser.getEventType();
-
-        while (eventType != XmlPullParser.END_DOCUMENT) {
-            String tagName = parser.getName();
-
-            switch (eventType) {
-                case XmlPullParser.START_TAG:
-                    currentTag = tagName;
-                    if ("item".equalsIgnoreCase(tagName)) {
-                        currentArticle = new NewsArticle();
-                    }
-                    break;
-
-                case XmlPullParser.TEXT:
-                    if (currentArticle != null && currentTag != null) {
-                        String text = parser.getText();
-                        switch (currentTag.toLowerCase()) {
-                            case "title":
-                                currentArticle.setTitle(text);
-                                break;
-                            case "description":
-                                currentArticle.setDescription(text);
-                                break;
-                            case "link":
-                                currentArticle.setLink(text);
-                                break;
-                            case "pubdate":
-                                currentArticle.setPubDate(text);
-                                break;
-                        }
-                    }
-                    break;
-
-                case XmlPullParser.END_TAG:
-                    if ("item".equalsIgnoreCase(tagName) && currentArticle != null) {
-                        articles.add(currentArticle);
-                        currentArticle = null;
-                    }
-                    currentTag = null;
-                    break;
-            }
-            eventType = parser.next();
-        }
+        return getDefault().parse(inputStream);
+    }
 
-        return articles;
+    /**
+     * Parse RSS feed from input stream, handing each article to the listener
+     * as soon as its closing item tag has been read.
+     * @param inputStream The RSS feed input stream
+     * @param listener Listener receiving each parsed article
+     * @throws Exception if parsing fails
+     */
+    public static void parse(InputStream inputStream, FeedParser.ArticleListener listener)
+            throws Exception {
+        getDefault().parse(inputStream, listener);
     }
 }
@@ -0,0 +1,138 @@
+package com.example.bbcnewsreader.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for ArticleTextExtractor.extract
+ */
+public class ArticleTextExtractorTest {
+
+    /** A paragraph long enough on its own to pass the minimum text length */
+    private static final String LONG = repeat("The committee published its findings today. ", 6);
+
+    @Test
+    public void extract_scopesToArticleElement() {
+        String html = "<html><body><p>" + LONG + "Outside.</p>"
+                + "<article><h2>Heading</h2><p>" + LONG + "</p></article>"
+                + "<p>Also outside.</p></body></html>";
+
+        String text = ArticleTextExtractor.extract(html);
+
+        assertEquals("Heading\n\n" + LONG.trim(), text);
+    }
+
+    @Test
+    public void extract_scopesToMainElementWithoutArticle() {
+        String html = "<body><p>Sidebar teaser.</p><main><p>" + LONG + "</p></main>"
+                + "<p>Copyright notice.</p></body>";
+
+        assertEquals(LONG.trim(), ArticleTextExtractor.extract(html));
+    }
+
+    @Test
+    public void extract_usesWholePageWithoutArticleOrMain() {
+        String html = "<body><div><p>" + LONG + "</p><h3>More</h3></div></body>";
+
+        assertEquals(LONG.trim() + "\n\nMore", ArticleTextExtractor.extract(html));
+    }
+
+    @Test
+    public void extract_removesFurniture() {
+        String html = "<article>"
+                + "<header><p>Share this page</p></header>"
+                + "<NAV class=\"links\"><p>Home</p></nav >"
+                + "<script>var p = '<p>not text</p>';</script>"
+                + "<figure><p>Photo caption</p></figure>"
+                + "<p>" + LONG + "</p>"
+                + "<!-- <p>commented out</p> -->"
+                + "<aside><p>Related stories</p></aside>"
+                + "<form><p>Sign up</p></form>"
+                + "<footer><p>Footer</p></footer>"
+                + "</article>";
+
+        assertEquals(LONG.trim(), ArticleTextExtractor.extract(html));
+    }
+
+    @Test
+    public void extract_keepsTextAfterUnclosedFurniture() {
+        String html = "<article><form action=\"/search\"><p>" + LONG + "</p>"
+                + "<header><p>Share</p></header></article>";
+
+        assertEquals(LONG.trim(), ArticleTextExtractor.extract(html));
+    }
+
+    @Test
+    public void extract_manyUnclosedFurnitureTags() {
+        StringBuilder html = new StringBuilder("<article>");
+        for (int i = 0; i < 20000; i++) {
+            html.append("<form><header><p>").append(LONG).append("</p>");
+        }
+        html.append("</article>");
+
+        long start = System.nanoTime();
+        String text = ArticleTextExtractor.extract(html.toString());
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        assertNotNull(text);
+        // A scan per unclosed tag took minutes on a page this size
+        assertTrue("Took " + millis + " ms", millis < 5000);
+    }
+
+    @Test
+    public void extract_decodesEntitiesAndStripsInlineTags() {
+        String html = "<p>Fish &amp; chips cost &pound;5 &ndash; &#8220;a bargain&#x201D;, "
+                + "said <a href=\"/x\">the <b>owner</b></a>&hellip; &unknown; "
+                + LONG + "</p>";
+
+        assertEquals("Fish & chips cost £5 – “a bargain”, said the owner… &unknown; "
+                + LONG.trim(), ArticleTextExtractor.extract(html));
+    }
+
+    @Test
+    public void extract_collapsesWhitespace() {
+        String html = "<p>\n  Line one\n\tline two&nbsp;&nbsp;end  " + LONG + "\n</p>";
+
+        String text = ArticleTextExtractor.extract(html);
+
+        assertNotNull(text);
+        assertTrue(text.startsWith("Line one line two end The committee"));
+        assertFalse(text.contains("  "));
+    }
+
+    @Test
+    public void extract_returnsNullBelowMinimumLength() {
+        assertNull(ArticleTextExtractor.extract("<article><p>Watch: the goal</p></article>"));
+    }
+
+    @Test
+    public void extract_minimumLengthBoundary() {
+        String exact = repeat("a", 200);
+
+        assertEquals(exact, ArticleTextExtractor.extract("<p>" + exact + "</p>"));
+        assertNull(ArticleTextExtractor.extract("<p>" + exact.substring(1) + "</p>"));
+    }
+
+    @Test
+    public void extract_countsParagraphSeparatorsTowardsMinimumLength() {
+        // 99 + 2 separator characters + 99 makes exactly the minimum
+        String half = repeat("b", 99);
+
+        String text = ArticleTextExtractor.extract("<p>" + half + "</p><p>" + half + "</p>");
+
+        assertEquals(half + "\n\n" + half, text);
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+}
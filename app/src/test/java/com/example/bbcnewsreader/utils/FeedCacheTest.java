@@ -0,0 +1,429 @@
+package com.example.bbcnewsreader.utils;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Local unit tests for FeedCache's conditional GET and disk cache, against a
+ * stand-in HTTP server on the loopback interface
+ */
+public class FeedCacheTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+    private static final String ETAG_1 = "\"v1\"";
+    private static final String ETAG_2 = "\"v2\"";
+    private static final String MODIFIED_1 = "Sat, 17 Oct 2026 14:05:11 GMT";
+    private static final String MODIFIED_2 = "Sat, 17 Oct 2026 15:05:11 GMT";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheDir;
+    private HttpClient httpClient;
+    private FeedServer server;
+    private String feedUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = new File(folder.getRoot(), "feeds");
+        httpClient = new HttpClient("FeedCacheTest");
+        server = new FeedServer();
+        feedUrl = server.url("/news/rss.xml");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void fetch_storesBodyAndValidatorsThenRevalidates() throws Exception {
+        byte[] body = feed("first");
+        server.enqueue(Response.ok(body, ETAG_1, MODIFIED_1));
+        server.enqueue(Response.notModified(ETAG_1));
+        FeedCache cache = new FeedCache(cacheDir, httpClient);
+
+        List<NewsArticle> downloaded = cache.fetch(feedUrl);
+
+        assertEquals("first", downloaded.get(0).getTitle());
+        assertNull(server.request(0).get("if-none-match"));
+        assertArrayEquals(body, Files.readAllBytes(bodyFile().toPath()));
+        assertEquals(ETAG_1 + "\n" + MODIFIED_1 + "\n", read(metaFile()));
+
+        List<NewsArticle> replayed = new ArrayList<>();
+        List<NewsArticle> revalidated = cache.fetch(feedUrl, replayed::add);
+
+        assertEquals(ETAG_1, server.request(1).get("if-none-match"));
+        assertEquals(MODIFIED_1, server.request(1).get("if-modified-since"));
+        // Unchanged: the articles parsed before are handed out again
+        assertSame(downloaded, revalidated);
+        assertEquals(downloaded, replayed);
+    }
+
+    @Test
+    public void fetch_notModifiedAfterRestartParsesStoredBody() throws Exception {
+        server.enqueue(Response.ok(feed("first"), ETAG_1, MODIFIED_1));
+        server.enqueue(Response.notModified(ETAG_1));
+        new FeedCache(cacheDir, httpClient).fetch(feedUrl);
+
+        // A new instance has nothing in memory, as after the process is restarted
+        List<NewsArticle> replayed = new ArrayList<>();
+        List<NewsArticle> articles = new FeedCache(cacheDir, httpClient)
+                .fetch(feedUrl, replayed::add);
+
+        assertEquals(ETAG_1, server.request(1).get("if-none-match"));
+        assertEquals(1, articles.size());
+        assertEquals("first", articles.get(0).getTitle());
+        assertEquals(articles, replayed);
+    }
+
+    @Test
+    public void fetch_changedFeedReplacesBodyAndValidators() throws Exception {
+        server.enqueue(Response.ok(feed("first"), ETAG_1, MODIFIED_1));
+        byte[] changed = feed("second", "third");
+        server.enqueue(Response.ok(changed, ETAG_2, MODIFIED_2));
+        server.enqueue(Response.notModified(ETAG_2));
+        FeedCache cache = new FeedCache(cacheDir, httpClient);
+        cache.fetch(feedUrl);
+
+        List<NewsArticle> articles = cache.fetch(feedUrl);
+
+        assertEquals(ETAG_1, server.request(1).get("if-none-match"));
+        assertEquals(2, articles.size());
+        assertEquals("second", articles.get(0).getTitle());
+        assertArrayEquals(changed, Files.readAllBytes(bodyFile().toPath()));
+        assertEquals(ETAG_2 + "\n" + MODIFIED_2 + "\n", read(metaFile()));
+
+        assertSame(articles, cache.fetch(feedUrl));
+        assertEquals(ETAG_2, server.request(2).get("if-none-match"));
+        assertEquals(MODIFIED_2, server.request(2).get("if-modified-since"));
+    }
+
+    @Test
+    public void fetch_storesTheBodyAsItIsParsed() throws Exception {
+        // Bytes after the closing tag must reach the disk copy too
+        byte[] body = (new String(feed("first", "second"), StandardCharsets.UTF_8)
+                + "\n<!-- trailing -->\n").getBytes(StandardCharsets.UTF_8);
+        int firstItemEnd = new String(body, StandardCharsets.UTF_8).indexOf("</item>")
+                + "</item>".length();
+        final CountDownLatch firstArticle = new CountDownLatch(1);
+        Response response = Response.ok(body, ETAG_1, MODIFIED_1);
+        // The server holds back everything after the first item until it is parsed
+        response.pauseAfter = firstItemEnd;
+        response.resume = firstArticle;
+        server.enqueue(response);
+
+        List<NewsArticle> articles = new FeedCache(cacheDir, httpClient)
+                .fetch(feedUrl, article -> firstArticle.countDown());
+
+        assertTrue("First article was not parsed before the rest arrived",
+                response.resumedByClient);
+        assertEquals(2, articles.size());
+        assertArrayEquals(body, Files.readAllBytes(bodyFile().toPath()));
+    }
+
+    @Test
+    public void fetch_truncatedBodyLeavesNoCacheFile() throws Exception {
+        Response response = Response.ok(feed("first", "second"), ETAG_1, MODIFIED_1);
+        response.truncate = true;
+        server.enqueue(response);
+
+        try {
+            new FeedCache(cacheDir, httpClient).fetch(feedUrl);
+            fail("Truncated feed was accepted");
+        } catch (Exception expected) {
+            // The connection closed before Content-Length bytes arrived
+        }
+
+        assertEquals(Collections.emptyList(), cacheFiles());
+    }
+
+    @Test
+    public void fetch_truncatedChangeKeepsTheEarlierCopy() throws Exception {
+        byte[] body = feed("first");
+        server.enqueue(Response.ok(body, ETAG_1, MODIFIED_1));
+        Response truncated = Response.ok(feed("second", "third"), ETAG_2, MODIFIED_2);
+        truncated.truncate = true;
+        server.enqueue(truncated);
+        server.enqueue(Response.notModified(ETAG_1));
+        FeedCache cache = new FeedCache(cacheDir, httpClient);
+        List<NewsArticle> first = cache.fetch(feedUrl);
+
+        try {
+            cache.fetch(feedUrl);
+            fail("Truncated feed was accepted");
+        } catch (Exception expected) {
+            // The connection closed before Content-Length bytes arrived
+        }
+
+        List<String> expectedFiles = new ArrayList<>();
+        expectedFiles.add(bodyFile().getName());
+        expectedFiles.add(metaFile().getName());
+        Collections.sort(expectedFiles);
+        assertEquals(expectedFiles, cacheFiles());
+        assertArrayEquals(body, Files.readAllBytes(bodyFile().toPath()));
+        assertEquals(ETAG_1 + "\n" + MODIFIED_1 + "\n", read(metaFile()));
+        // The next fetch still revalidates the copy that was stored whole
+        assertSame(first, cache.fetch(feedUrl));
+        assertEquals(ETAG_1, server.request(2).get("if-none-match"));
+    }
+
+    @Test
+    public void cancel_disconnectsAFetchBlockedReading() throws Exception {
+        byte[] body = feed("first", "second");
+        final CountDownLatch firstArticle = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Response response = Response.ok(body, ETAG_1, MODIFIED_1);
+        // The rest of the body only comes once the test is over
+        response.pauseAfter = new String(body, StandardCharsets.UTF_8).indexOf("</item>")
+                + "</item>".length();
+        response.resume = release;
+        server.enqueue(response);
+        final FeedCache.Cancellation cancellation = new FeedCache.Cancellation();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<NewsArticle>> fetch = executor.submit(() -> new FeedCache(cacheDir,
+                    httpClient).fetch(feedUrl, article -> firstArticle.countDown(), cancellation));
+            assertTrue(firstArticle.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+            cancellation.cancel();
+
+            try {
+                fetch.get(TIMEOUT_MILLIS / 2, TimeUnit.MILLISECONDS);
+                fail("Cancelled fetch completed");
+            } catch (ExecutionException expected) {
+                // The read failed once the connection was closed
+            }
+            assertEquals(Collections.emptyList(), cacheFiles());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cancel_beforeConnectingStopsTheFetch() throws Exception {
+        FeedCache.Cancellation cancellation = new FeedCache.Cancellation();
+        cancellation.cancel();
+
+        try {
+            new FeedCache(cacheDir, httpClient).fetch(feedUrl, null, cancellation);
+            fail("Cancelled fetch completed");
+        } catch (InterruptedIOException expected) {
+            // Nothing was requested
+        }
+        assertEquals(0, server.requestCount());
+    }
+
+    @Test
+    public void fetch_keysFilesOnTheSha1OfTheUrl() throws Exception {
+        server.enqueue(Response.ok(feed("first"), ETAG_1, MODIFIED_1));
+
+        new FeedCache(cacheDir, httpClient).fetch(feedUrl);
+
+        assertTrue(bodyFile().getName().matches("[0-9a-f]{40}\\.xml"));
+        assertTrue(bodyFile().isFile());
+        assertTrue(metaFile().isFile());
+        assertFalse(ImageLoader.fileNameFor(feedUrl)
+                .equals(ImageLoader.fileNameFor(server.url("/news/world/rss.xml"))));
+    }
+
+    private File bodyFile() {
+        return new File(cacheDir, ImageLoader.fileNameFor(feedUrl) + ".xml");
+    }
+
+    private File metaFile() {
+        return new File(cacheDir, ImageLoader.fileNameFor(feedUrl) + ".meta");
+    }
+
+    /**
+     * @return Names of the files in the cache directory, sorted
+     */
+    private List<String> cacheFiles() {
+        List<String> names = new ArrayList<>();
+        String[] files = cacheDir.list();
+        if (files != null) {
+            Collections.addAll(names, files);
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] feed(String... titles) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<rss version=\"2.0\"><channel><title>Channel title</title>");
+        for (String title : titles) {
+            xml.append("<item><title>").append(title).append("</title><link>")
+                    .append("https://www.bbc.com/news/").append(title).append("</link></item>");
+        }
+        return xml.append("</channel></rss>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A scripted response: 200 with a body, or 304. A 200 can stop after part of its
+     * body until released, or close the connection before the declared length.
+     */
+    private static final class Response {
+        final String head;
+        final byte[] body;
+        int pauseAfter = -1;
+        CountDownLatch resume;
+        boolean truncate;
+        volatile boolean resumedByClient;
+
+        private Response(String head, byte[] body) {
+            this.head = head;
+            this.body = body;
+        }
+
+        static Response ok(byte[] body, String etag, String lastModified) {
+            return new Response("HTTP/1.1 200 OK\r\nContent-Type: application/rss+xml\r\n"
+                    + "ETag: " + etag + "\r\nLast-Modified: " + lastModified + "\r\n"
+                    + "Content-Length: " + body.length + "\r\n", body);
+        }
+
+        static Response notModified(String etag) {
+            return new Response("HTTP/1.1 304 Not Modified\r\nETag: " + etag + "\r\n",
+                    new byte[0]);
+        }
+    }
+
+    /**
+     * Answers each request with the next scripted response and records its headers
+     */
+    private static final class FeedServer {
+        private final ServerSocket socket;
+        private final BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        private final List<Map<String, String>> requests =
+                Collections.synchronizedList(new ArrayList<Map<String, String>>());
+
+        FeedServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            Thread acceptor = new Thread(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        final Socket client = socket.accept();
+                        new Thread(() -> serve(client)).start();
+                    } catch (IOException e) {
+                        // Closed
+                    }
+                }
+            }, "feed-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        String url(String path) {
+            return "http://127.0.0.1:" + socket.getLocalPort() + path;
+        }
+
+        void enqueue(Response response) {
+            responses.add(response);
+        }
+
+        /**
+         * @return Headers of a request, in the order received, keyed by lowercase name
+         */
+        Map<String, String> request(int index) {
+            return requests.get(index);
+        }
+
+        int requestCount() {
+            return requests.size();
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+
+        private void serve(Socket client) {
+            try {
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                if (in.readLine() == null) {
+                    return;
+                }
+                Map<String, String> headers = new HashMap<>();
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                            line.substring(colon + 1).trim());
+                }
+                requests.add(headers);
+                Response response = responses.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (response == null) {
+                    return;
+                }
+
+                OutputStream out = client.getOutputStream();
+                out.write((response.head + "Connection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                byte[] body = response.body;
+                if (response.truncate) {
+                    out.write(body, 0, body.length / 2);
+                } else if (response.pauseAfter >= 0) {
+                    out.write(body, 0, response.pauseAfter);
+                    out.flush();
+                    response.resumedByClient =
+                            response.resume.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    out.write(body, response.pauseAfter, body.length - response.pauseAfter);
+                } else {
+                    out.write(body);
+                }
+                out.flush();
+            } catch (IOException | InterruptedException e) {
+                // The client went away
+            } finally {
+                try {
+                    client.close();
+                } catch (IOException e) {
+                    // Ignored
+                }
+            }
+        }
+    }
+}
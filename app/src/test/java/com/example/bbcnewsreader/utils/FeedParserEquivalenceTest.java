@@ -0,0 +1,198 @@
+package com.example.bbcnewsreader.utils;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Local unit tests checking that FastFeedParser produces exactly the articles
+ * PullFeedParser does, over the sample BBC feed and feeds shaped to hit the
+ * fast engine's special cases
+ */
+public class FeedParserEquivalenceTest {
+
+    private static final String SAMPLE = "/feeds/bbc_sample.xml";
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<rss version=\"2.0\" xmlns:media=\"http://search.yahoo.com/mrss/\""
+            + " xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><channel>"
+            + "<title>Channel title</title><link>https://www.bbc.co.uk/news</link>";
+    private static final String FOOTER = "</channel></rss>";
+
+    private FastFeedParser fast;
+    private PullFeedParser reference;
+
+    @Before
+    public void setUp() throws Exception {
+        fast = new FastFeedParser();
+        reference = new PullFeedParser();
+    }
+
+    @Test
+    public void sampleFeed() throws Exception {
+        List<NewsArticle> articles = assertEquivalent(readSample());
+
+        assertEquals(8, articles.size());
+        for (NewsArticle article : articles) {
+            assertNotNull(article.getLink(), article.getThumbnailUrl());
+        }
+        assertEquals("https://ichef.bbci.co.uk/ace/standard/240/cpsprodpb/c4gk21x7p0lo/live/"
+                + "c4gk21x7p0lo.jpg", articles.get(0).getThumbnailUrl());
+        assertEquals("Montréal transit strike enters second week", articles.get(2).getTitle());
+    }
+
+    @Test
+    public void sampleFeedParsedRepeatedlyOnOneThread() throws Exception {
+        // The fast engine reuses its parser and buffer for every document on a thread
+        byte[] sample = readSample();
+        for (int i = 0; i < 3; i++) {
+            assertEquivalent(sample);
+        }
+    }
+
+    @Test
+    public void firstThumbnailOnly() throws Exception {
+        List<NewsArticle> articles = assertEquivalent(feed("<item><title>T</title>"
+                + "<media:thumbnail width=\"240\" url=\"https://img/first.jpg\"/>"
+                + "<media:thumbnail width=\"976\" url=\"https://img/second.jpg\"/>"
+                + "<link>https://www.bbc.com/news/a</link></item>"));
+
+        assertEquals("https://img/first.jpg", articles.get(0).getThumbnailUrl());
+    }
+
+    @Test
+    public void missingThumbnail() throws Exception {
+        List<NewsArticle> articles = assertEquivalent(feed(
+                "<item><title>T</title><link>https://www.bbc.com/news/a</link></item>"));
+
+        assertNull(articles.get(0).getThumbnailUrl());
+    }
+
+    @Test
+    public void textSplitIntoSeveralChunks() throws Exception {
+        List<NewsArticle> articles = assertEquivalent(feed("<item>"
+                + "<title>Fish &amp; chips <![CDATA[<cheaper>]]> than &quot;ever&quot;</title>"
+                + "<description>Line one\n  line two &#163;5</description>"
+                + "<link>https://www.bbc.com/news/a</link></item>"));
+
+        assertEquals("Fish & chips <cheaper> than \"ever\"", articles.get(0).getTitle());
+    }
+
+    @Test
+    public void namespacedFieldsAreIgnored() throws Exception {
+        List<NewsArticle> articles = assertEquivalent(feed("<item>"
+                + "<dc:title>Dublin Core title</dc:title>"
+                + "<title>Plain title</title>"
+                + "<media:title>Media title</media:title>"
+                + "<link>https://www.bbc.com/news/a</link></item>"));
+
+        assertEquals("Plain title", articles.get(0).getTitle());
+    }
+
+    @Test
+    public void tagNamesInAnyCase() throws Exception {
+        assertEquivalent(feed("<ITEM><Title>Upper</Title><LINK>https://www.bbc.com/news/a</LINK>"
+                + "<PUBDATE>Sat, 17 Oct 2026 14:05:11 GMT</PUBDATE></ITEM>"));
+    }
+
+    @Test
+    public void emptyAndMissingFields() throws Exception {
+        assertEquivalent(feed("<item><title></title><description/>"
+                + "<link>https://www.bbc.com/news/a</link></item>"
+                + "<item><link>https://www.bbc.com/news/b</link>"
+                + "<pubDate>not a date</pubDate></item>"));
+    }
+
+    @Test
+    public void unknownChildrenAndChannelFieldsAreSkipped() throws Exception {
+        List<NewsArticle> articles = assertEquivalent(feed("<item>"
+                + "<guid isPermaLink=\"false\">https://www.bbc.com/news/a#0</guid>"
+                + "<category>World</category>"
+                + "<title>T</title><link>https://www.bbc.com/news/a</link></item>"));
+
+        assertEquals(1, articles.size());
+        assertEquals("T", articles.get(0).getTitle());
+    }
+
+    @Test
+    public void namespacedItemsAreIgnored() throws Exception {
+        List<NewsArticle> articles = assertEquivalent(feed(
+                "<x:item xmlns:x=\"https://example.com/x\"><title>Other</title>"
+                + "<link>https://www.bbc.com/news/x</link></x:item>"
+                + "<item><title>T</title><link>https://www.bbc.com/news/a</link></item>"));
+
+        assertEquals(1, articles.size());
+        assertEquals("https://www.bbc.com/news/a", articles.get(0).getLink());
+    }
+
+    @Test
+    public void nestedElementsInsideFieldsKeepTheirText() throws Exception {
+        List<NewsArticle> articles = assertEquivalent(feed("<item><title>T</title>"
+                + "<description>a <b>bold</b> c</description>"
+                + "<link>https://www.bbc.com/news/a</link></item>"
+                + "<item><title>U</title><description>d "
+                + "<media:thumbnail url=\"https://img/nested.jpg\"/>e</description>"
+                + "<link>https://www.bbc.com/news/b</link></item>"));
+
+        assertEquals("a bold c", articles.get(0).getDescription());
+        assertEquals("d e", articles.get(1).getDescription());
+        // Only a direct child of the item is its thumbnail
+        assertNull(articles.get(1).getThumbnailUrl());
+    }
+
+    /**
+     * Parse a document with both engines and compare every field of every article
+     * @return The articles
+     */
+    private List<NewsArticle> assertEquivalent(byte[] document) throws Exception {
+        List<NewsArticle> expected = reference.parse(new ByteArrayInputStream(document));
+        List<NewsArticle> actual = fast.parse(new ByteArrayInputStream(document));
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            NewsArticle want = expected.get(i);
+            NewsArticle got = actual.get(i);
+            String item = "item " + i;
+            assertEquals(item, want.getTitle(), got.getTitle());
+            assertEquals(item, want.getDescription(), got.getDescription());
+            assertEquals(item, want.getLink(), got.getLink());
+            assertEquals(item, want.getPubDate(), got.getPubDate());
+            assertEquals(item, want.getPubTime(), got.getPubTime());
+            assertEquals(item, want.getThumbnailUrl(), got.getThumbnailUrl());
+        }
+        return actual;
+    }
+
+    private static byte[] feed(String items) {
+        return (HEADER + items + FOOTER).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readSample() throws IOException {
+        InputStream in = FeedParserEquivalenceTest.class.getResourceAsStream(SAMPLE);
+        if (in == null) {
+            throw new IOException("Missing resource " + SAMPLE);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
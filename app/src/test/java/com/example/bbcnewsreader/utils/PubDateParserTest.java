@@ -0,0 +1,120 @@
+package com.example.bbcnewsreader.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests for PubDateParser.parse
+ */
+public class PubDateParserTest {
+
+    private static final long HOUR = 60L * 60 * 1000;
+    /** Sat, 17 Oct 2026 14:05:11 GMT */
+    private static final long SAMPLE = utc(2026, Calendar.OCTOBER, 17, 14, 5, 11);
+
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    public void parse_bbcFormat() {
+        assertEquals(SAMPLE, PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 GMT"));
+    }
+
+    @Test
+    public void parse_numericZones() {
+        assertEquals(SAMPLE, PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 +0000"));
+        assertEquals(SAMPLE - HOUR, PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 +0100"));
+        assertEquals(SAMPLE + 5 * HOUR, PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 -0500"));
+        assertEquals(SAMPLE - 5 * HOUR - HOUR / 2,
+                PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 +0530"));
+    }
+
+    @Test
+    public void parse_namedZones() {
+        assertEquals(SAMPLE, PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 UTC"));
+        assertEquals(SAMPLE + 5 * HOUR, PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 EST"));
+    }
+
+    @Test
+    public void parse_withoutDayName() {
+        assertEquals(SAMPLE, PubDateParser.parse("17 Oct 2026 14:05:11 GMT"));
+    }
+
+    @Test
+    public void parse_withoutSeconds() {
+        assertEquals(SAMPLE - 11000, PubDateParser.parse("Sat, 17 Oct 2026 14:05 GMT"));
+        assertEquals(SAMPLE - 11000, PubDateParser.parse("17 Oct 2026 14:05 +0000"));
+    }
+
+    @Test
+    public void parse_twoDigitYearAndOneDigitDay() {
+        assertEquals(utc(2026, Calendar.OCTOBER, 7, 14, 5, 11),
+                PubDateParser.parse("Wed, 7 Oct 26 14:05:11 GMT"));
+    }
+
+    @Test
+    public void parse_trimsSurroundingWhitespace() {
+        assertEquals(SAMPLE, PubDateParser.parse("\n   Sat, 17 Oct 2026 14:05:11 GMT  \n"));
+    }
+
+    @Test
+    public void parse_ignoresDeviceLocale() {
+        Locale.setDefault(Locale.FRANCE);
+        assertEquals(SAMPLE, PubDateParser.parse("Sat, 17 Oct 2026 14:05:11 GMT"));
+    }
+
+    @Test
+    public void parse_unknownForMissingOrInvalidDates() {
+        assertEquals(PubDateParser.UNKNOWN, PubDateParser.parse(null));
+        assertEquals(PubDateParser.UNKNOWN, PubDateParser.parse(""));
+        assertEquals(PubDateParser.UNKNOWN, PubDateParser.parse("yesterday"));
+        assertEquals(PubDateParser.UNKNOWN, PubDateParser.parse("2026-10-17T14:05:11Z"));
+        assertEquals(PubDateParser.UNKNOWN, PubDateParser.parse("Sat, 17 Oct 2026 14:05:11"));
+    }
+
+    @Test
+    public void parse_concurrentThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final int hour = i % 24;
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return PubDateParser.parse(String.format(Locale.US,
+                                "Sat, 17 Oct 2026 %02d:05:11 GMT", hour));
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(SAMPLE + (i % 24 - 14) * HOUR, (long) results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,50 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+// Plain-JVM JMH benchmarks for the app's parser, search, database mapping and article passing code.
+// :app is an Android module, so the classes under test are compiled in from its sources.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/bbcnewsreader/business/ArticleStore.java",
+                "com/example/bbcnewsreader/business/SearchIndex.java",
+                "com/example/bbcnewsreader/data/NewsArticle.java",
+                "com/example/bbcnewsreader/data/DatabaseHelper.java",
+                "com/example/bbcnewsreader/data/RetentionPolicy.java",
+                "com/example/bbcnewsreader/data/SearchHit.java",
+                "com/example/bbcnewsreader/utils/FeedParser.java",
+                "com/example/bbcnewsreader/utils/PullFeedParser.java",
+                "com/example/bbcnewsreader/utils/FastFeedParser.java",
+                "com/example/bbcnewsreader/utils/PubDateParser.java",
+                "com/example/bbcnewsreader/utils/RSSParser.java"
+            )
+        }
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+dependencies {
+    // Real framework classes (Cursor, MatrixCursor, SQLiteOpenHelper) runnable on a JVM
+    implementation("org.robolectric:android-all:14-robolectric-10818077")
+    // Pull parser implementation behind XmlPullParserFactory
+    implementation("net.sf.kxml:kxml2:2.3.0")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // android-all alone has more classes than a plain zip can index
+    zip64.set(true)
+}
@@ -0,0 +1,95 @@
+package com.example.bbcnewsreader.benchmark;
+
+import com.example.bbcnewsreader.business.ArticleStore;
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM side of handing an article to the detail screen: the Java serialization round
+ * trip behind a Serializable intent extra, against putting the article in the
+ * ArticleStore and looking its handle up. Parcel needs the Android runtime, so the
+ * full Binder path is measured by the instrumented ArticlePassingBenchmark in :app.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArticlePassingBenchmark {
+
+    @Param({"200", "4000"})
+    public int descriptionLength;
+
+    private NewsArticle article;
+    private SerializableArticle serializable;
+    private ArticleStore store;
+
+    @Setup
+    public void setUp() {
+        StringBuilder description = new StringBuilder(descriptionLength);
+        while (description.length() < descriptionLength) {
+            description.append("Ministers said the plan would be set out in full next week. ");
+        }
+        description.setLength(descriptionLength);
+        article = new NewsArticle("Budget to include new measures on housing",
+                description.toString(), "https://www.bbc.co.uk/news/articles/c0benchmark",
+                "Mon, 05 Oct 2026 10:00:00 GMT");
+        serializable = new SerializableArticle(article);
+        store = ArticleStore.getInstance();
+    }
+
+    @Benchmark
+    public Object serializableRoundTrip() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(serializable);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        return in.readObject();
+    }
+
+    @Benchmark
+    public NewsArticle storeHandle() {
+        return store.get(store.put(article));
+    }
+
+    /**
+     * The article as the old code passed it: a Serializable with the same fields
+     */
+    private static class SerializableArticle implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long id;
+        final String title;
+        final String description;
+        final String link;
+        final String pubDate;
+        final long pubTime;
+        final String thumbnailUrl;
+
+        SerializableArticle(NewsArticle article) {
+            id = article.getId();
+            title = article.getTitle();
+            description = article.getDescription();
+            link = article.getLink();
+            pubDate = article.getPubDate();
+            pubTime = article.getPubTime();
+            thumbnailUrl = article.getThumbnailUrl();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bbcnewsreader.benchmark;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.utils.PullFeedParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds BBC-shaped RSS documents of any size from the items in feeds/bbc_sample.xml.
+ * Items are repeated in order with a suffix on each link so every article is distinct.
+ */
+public final class FeedCorpus {
+
+    private static final String SAMPLE = "/feeds/bbc_sample.xml";
+
+    private FeedCorpus() {
+    }
+
+    /**
+     * Build an RSS document
+     * @param itemCount Number of items in the document
+     * @return UTF-8 encoded feed
+     */
+    public static byte[] feed(int itemCount) {
+        String sample = readSample();
+        int firstItem = sample.indexOf("<item>");
+        int afterLastItem = sample.lastIndexOf("</item>") + "</item>".length();
+        String header = sample.substring(0, firstItem);
+        String footer = sample.substring(afterLastItem);
+
+        List<String> items = new ArrayList<>();
+        int start = firstItem;
+        while (start >= 0 && start < afterLastItem) {
+            int end = sample.indexOf("</item>", start) + "</item>".length();
+            items.add(sample.substring(start, end));
+            start = sample.indexOf("<item>", end);
+        }
+
+        StringBuilder feed = new StringBuilder(header);
+        for (int i = 0; i < itemCount; i++) {
+            String item = items.get(i % items.size());
+            feed.append(item.replace("</link>", "-" + i + "</link>")
+                    .replace("#0</guid>", "-" + i + "#0</guid>"))
+                    .append("\n        ");
+        }
+        feed.append(footer);
+        return feed.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a generated document with the reference engine
+     * @param itemCount Number of articles
+     * @return The articles
+     */
+    public static List<NewsArticle> articles(int itemCount) {
+        try {
+            return new PullFeedParser().parse(new ByteArrayInputStream(feed(itemCount)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Sample feed does not parse", e);
+        }
+    }
+
+    private static String readSample() {
+        try (InputStream in = FeedCorpus.class.getResourceAsStream(SAMPLE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + SAMPLE);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
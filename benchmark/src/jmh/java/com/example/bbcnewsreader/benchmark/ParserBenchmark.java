@@ -0,0 +1,86 @@
+package com.example.bbcnewsreader.benchmark;
+
+import com.example.bbcnewsreader.data.NewsArticle;
+import com.example.bbcnewsreader.utils.FastFeedParser;
+import com.example.bbcnewsreader.utils.FeedParser;
+import com.example.bbcnewsreader.utils.PullFeedParser;
+import com.example.bbcnewsreader.utils.RSSParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each FeedParser engine on feeds of 50, 500 and 5,000 items.
+ * "default" goes through the RSSParser facade used by the app.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParserBenchmark {
+
+    @Param({"50", "500", "5000"})
+    public int itemCount;
+
+    @Param({"pull", "fast", "default"})
+    public String engine;
+
+    private byte[] feed;
+    private FeedParser parser;
+
+    @Setup
+    public void setUp() throws Exception {
+        feed = FeedCorpus.feed(itemCount);
+        switch (engine) {
+            case "fast":
+                parser = new FastFeedParser();
+                break;
+            case "pull":
+                parser = new PullFeedParser();
+                break;
+            default:
+                parser = RSSParser.getDefault();
+                break;
+        }
+        verifyEnginesAgree();
+    }
+
+    @Benchmark
+    public List<NewsArticle> parse() throws Exception {
+        return parser.parse(new ByteArrayInputStream(feed));
+    }
+
+    /**
+     * Fail fast if the engines produce different articles for this corpus
+     */
+    private void verifyEnginesAgree() throws Exception {
+        List<NewsArticle> expected = new PullFeedParser().parse(new ByteArrayInputStream(feed));
+        List<NewsArticle> actual = new FastFeedParser().parse(new ByteArrayInputStream(feed));
+        if (expected.size() != itemCount || actual.size() != itemCount) {
+            throw new IllegalStateException("Expected " + itemCount + " items, got "
+                    + expected.size() + " and " + actual.size());
+        }
+        for (int i = 0; i < itemCount; i++) {
+            NewsArticle a = expected.get(i);
+            NewsArticle b = actual.get(i);
+            if (!Objects.equals(a.getTitle(), b.getTitle())
+                    || !Objects.equals(a.getDescription(), b.getDescription())
+                    || !Objects.equals(a.getLink(), b.getLink())
+                    || !Objects.equals(a.getPubDate(), b.getPubDate())
+                    || a.getPubTime() != b.getPubTime()
+                    || !Objects.equals(a.getThumbnailUrl(), b.getThumbnailUrl())) {
+                throw new IllegalStateException("Engines disagree on item " + i);
+            }
+        }
+    }
+}
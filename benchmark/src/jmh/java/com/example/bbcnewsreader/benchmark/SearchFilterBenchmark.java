@@ -0,0 +1,72 @@
+package com.example.bbcnewsreader.benchmark;
+
+import com.example.bbcnewsreader.business.SearchIndex;
+import com.example.bbcnewsreader.data.NewsArticle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one search keystroke over the in-memory article list, as a linear scan
+ * and as a SearchIndex lookup, plus the one-off cost of building the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchFilterBenchmark {
+
+    @Param({"50", "500", "5000"})
+    public int articleCount;
+
+    @Param({"w", "smoke", "supreme court"})
+    public String query;
+
+    private List<NewsArticle> articles;
+    private SearchIndex index;
+
+    @Setup
+    public void setUp() {
+        articles = FeedCorpus.articles(articleCount);
+        index = new SearchIndex(Locale.ENGLISH);
+        index.addAll(articles);
+    }
+
+    /**
+     * Same algorithm as SearchNewsActivity.filterArticles: lowercase and scan every article
+     */
+    @Benchmark
+    public List<NewsArticle> linearScan() {
+        List<NewsArticle> filtered = new ArrayList<>();
+        String lowerQuery = query.toLowerCase();
+        for (NewsArticle article : articles) {
+            if (article.getTitle().toLowerCase().contains(lowerQuery) ||
+                    article.getDescription().toLowerCase().contains(lowerQuery)) {
+                filtered.add(article);
+            }
+        }
+        return filtered;
+    }
+
+    @Benchmark
+    public List<NewsArticle> indexLookup() {
+        return index.search(query);
+    }
+
+    @Benchmark
+    public SearchIndex indexBuild() {
+        SearchIndex built = new SearchIndex(Locale.ENGLISH);
+        built.addAll(articles);
+        return built;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bbcnewsreader.data;
+
+import android.database.MatrixCursor;
+
+import com.example.bbcnewsreader.benchmark.FeedCorpus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a favourites query result into NewsArticle objects, as done by
+ * DatabaseHelper. Compares resolving column indices per row, once per cursor, and
+ * the ID/title/date list projection. Lives in the data package to reach the
+ * package-private mapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CursorMappingBenchmark {
+
+    private static final String[] COLUMNS = {
+            "_id", "title", "description", "link", "pub_date", "pub_time"
+    };
+    private static final String[] LIST_COLUMNS = {"_id", "title", "pub_date", "pub_time"};
+
+    @Param({"50", "500", "5000"})
+    public int rowCount;
+
+    private MatrixCursor cursor;
+    private MatrixCursor listCursor;
+
+    @Setup
+    public void setUp() {
+        cursor = new MatrixCursor(COLUMNS, rowCount);
+        listCursor = new MatrixCursor(LIST_COLUMNS, rowCount);
+        long id = rowCount;
+        for (NewsArticle article : FeedCorpus.articles(rowCount)) {
+            cursor.addRow(new Object[]{id, article.getTitle(), article.getDescription(),
+                    article.getLink(), article.getPubDate(), article.getPubTime()});
+            listCursor.addRow(new Object[]{id, article.getTitle(), article.getPubDate(),
+                    article.getPubTime()});
+            id--;
+        }
+    }
+
+    @Benchmark
+    public List<NewsArticle> mapAllRows() {
+        List<NewsArticle> articles = new ArrayList<>(cursor.getCount());
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            articles.add(DatabaseHelper.articleFromCursor(cursor));
+        }
+        return articles;
+    }
+
+    @Benchmark
+    public List<NewsArticle> mapAllRowsResolvedOnce() {
+        return mapWithRowMapper(cursor);
+    }
+
+    @Benchmark
+    public List<NewsArticle> mapListProjection() {
+        return mapWithRowMapper(listCursor);
+    }
+
+    private static List<NewsArticle> mapWithRowMapper(MatrixCursor source) {
+        List<NewsArticle> articles = new ArrayList<>(source.getCount());
+        DatabaseHelper.ArticleRowMapper mapper = new DatabaseHelper.ArticleRowMapper(source);
+        source.moveToPosition(-1);
+        while (source.moveToNext()) {
+            articles.add(mapper.map(source));
+        }
+        return articles;
+    }
+}
@@ -19,4 +19,7 @@ rootProject.name = "BBC News Reader"
 
 // Include the 'app' module
 include(":app")
+
+// JVM benchmarks (JMH)
+include(":benchmark")
  
\ No newline at end of file